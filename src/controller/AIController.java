@@ -1,10 +1,8 @@
 package controller;
 
-import java.util.HashMap;
-
 import tiles.MapTile;
-import utilities.Coordinate;
 import world.Car;
+import world.TileView;
 import world.WorldSpatial;
 
 public class AIController extends CarController {
@@ -26,7 +24,7 @@ public class AIController extends CarController {
 	@Override
 	public void update() {
 		// Gets what the car can see
-		HashMap<Coordinate, MapTile> currentView = getView();
+		TileView currentView = getTileView();
 		
 		// checkStateChange();
 		if(getSpeed() < CAR_MAX_SPEED){       // Need speed to turn and progress toward the exit
@@ -57,7 +55,7 @@ public class AIController extends CarController {
 	 * @param currentView what the car can currently see
 	 * @return
 	 */
-	private boolean checkWallAhead(WorldSpatial.Direction orientation, HashMap<Coordinate, MapTile> currentView){
+	private boolean checkWallAhead(WorldSpatial.Direction orientation, TileView currentView){
 		switch(orientation){
 		case EAST:
 			return checkEast(currentView);
@@ -78,7 +76,7 @@ public class AIController extends CarController {
 	 * @param currentView
 	 * @return
 	 */
-	private boolean checkFollowingWall(WorldSpatial.Direction orientation, HashMap<Coordinate, MapTile> currentView) {
+	private boolean checkFollowingWall(WorldSpatial.Direction orientation, TileView currentView) {
 		
 		switch(orientation){
 		case EAST:
@@ -95,18 +93,17 @@ public class AIController extends CarController {
 	}
 	
 	/**
-	 * Method below just iterates through the list and check in the correct coordinates.
+	 * Method below just checks the view in the correct direction, relative to the car.
 	 * i.e. Given your current position is 10,10
 	 * checkEast will check up to wallSensitivity amount of tiles to the right.
 	 * checkWest will check up to wallSensitivity amount of tiles to the left.
 	 * checkNorth will check up to wallSensitivity amount of tiles to the top.
 	 * checkSouth will check up to wallSensitivity amount of tiles below.
 	 */
-	public boolean checkEast(HashMap<Coordinate, MapTile> currentView){
+	public boolean checkEast(TileView currentView){
 		// Check tiles to my right
-		Coordinate currentPosition = new Coordinate(getPosition());
 		for(int i = 0; i <= wallSensitivity; i++){
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x+i, currentPosition.y));
+			MapTile tile = currentView.tileAt(i, 0);
 			if(tile.isType(MapTile.Type.WALL)){
 				return true;
 			}
@@ -114,11 +111,10 @@ public class AIController extends CarController {
 		return false;
 	}
 	
-	public boolean checkWest(HashMap<Coordinate,MapTile> currentView){
+	public boolean checkWest(TileView currentView){
 		// Check tiles to my left
-		Coordinate currentPosition = new Coordinate(getPosition());
 		for(int i = 0; i <= wallSensitivity; i++){
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x-i, currentPosition.y));
+			MapTile tile = currentView.tileAt(-i, 0);
 			if(tile.isType(MapTile.Type.WALL)){
 				return true;
 			}
@@ -126,11 +122,10 @@ public class AIController extends CarController {
 		return false;
 	}
 	
-	public boolean checkNorth(HashMap<Coordinate,MapTile> currentView){
+	public boolean checkNorth(TileView currentView){
 		// Check tiles to towards the top
-		Coordinate currentPosition = new Coordinate(getPosition());
 		for(int i = 0; i <= wallSensitivity; i++){
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x, currentPosition.y+i));
+			MapTile tile = currentView.tileAt(0, i);
 			if(tile.isType(MapTile.Type.WALL)){
 				return true;
 			}
@@ -138,11 +133,10 @@ public class AIController extends CarController {
 		return false;
 	}
 	
-	public boolean checkSouth(HashMap<Coordinate,MapTile> currentView){
+	public boolean checkSouth(TileView currentView){
 		// Check tiles towards the bottom
-		Coordinate currentPosition = new Coordinate(getPosition());
 		for(int i = 0; i <= wallSensitivity; i++){
-			MapTile tile = currentView.get(new Coordinate(currentPosition.x, currentPosition.y-i));
+			MapTile tile = currentView.tileAt(0, -i);
 			if(tile.isType(MapTile.Type.WALL)){
 				return true;
 			}
@@ -1,18 +1,28 @@
 package controller;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Set;
 
 import tiles.MapTile;
 import utilities.Coordinate;
 import world.Car;
-import world.World;
+import world.TileView;
+import world.ViewDelta;
 import world.WorldSpatial;
 
 public abstract class CarController {
 	
 	private Car car;
 	
+	private final TileView tileView = new TileView(Car.VIEW_SQUARE);
+	
+	// Two views for the delta stream, swapped on every call
+	private TileView deltaView = new TileView(Car.VIEW_SQUARE);
+	private TileView previousDeltaView = new TileView(Car.VIEW_SQUARE);
+	private boolean hasPreviousDeltaView = false;
+	private final ViewDelta viewDelta = new ViewDelta(deltaView.size());
+	
 	/**
 	 * Instantiates the car
 	 * @param car
@@ -69,6 +79,13 @@ public abstract class CarController {
 	public float getSpeed(){
 		return car.getSpeed();
 	}
+
+	/**
+	 * Returns the car's signed velocity, negative while reversing.
+	 */
+	public int getVelocity(){
+		return car.getVelocity();
+	}
 	
 	/**
 	 * Returns the car's current health
@@ -84,6 +101,29 @@ public abstract class CarController {
 		return car.getView();
 	}
 	
+	/**
+	 * Returns the same view as getView(), refreshed into a buffer owned by this
+	 * controller. Nothing is allocated, but the contents change on every call.
+	 */
+	public TileView getTileView(){
+		car.getView(tileView);
+		return tileView;
+	}
+	
+	/**
+	 * Returns only the cells that entered the view or changed since the previous call.
+	 * The first call returns the whole view. Meant to be called once per update().
+	 */
+	public ViewDelta getViewChanges(){
+		TileView swap = previousDeltaView;
+		previousDeltaView = deltaView;
+		deltaView = swap;
+		car.getView(deltaView);
+		viewDelta.compute(hasPreviousDeltaView ? previousDeltaView : null, deltaView);
+		hasPreviousDeltaView = true;
+		return viewDelta;
+	}
+	
 	/**
 	 * Get the distance the car can see
 	 */
@@ -116,21 +156,28 @@ public abstract class CarController {
 	 * Get visible map
 	 */
 	public HashMap<Coordinate,MapTile> getMap(){
-		return World.getMap();
+		return car.getWorld().getMap();
+	}
+	
+	/*
+	 * Get the TMX file the map was loaded from, null for a generated map
+	 */
+	public File getMapFile() {
+		return car.getWorld().getMapFile();
 	}
 	
 	/*
 	 * Get map height
 	 */
 	public int mapHeight() {
-		return World.MAP_HEIGHT;
+		return car.getWorld().getMapHeight();
 	}
 	
 	/*
 	 * Get map width
 	 */
 	public int mapWidth() {
-		return World.MAP_WIDTH;
+		return car.getWorld().getMapWidth();
 	}
 	
 	/**
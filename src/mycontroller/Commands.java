@@ -0,0 +1,34 @@
+/**
+ * Group 23
+ */
+package mycontroller;
+
+/**
+ * The commands the controller gives the car, one per update.
+ */
+public enum Commands {
+    /**
+     * Forward commands.
+     */
+    FORWARD,
+    /**
+     * Reverse commands.
+     */
+    REVERSE,
+    /**
+     * Left commands.
+     */
+    LEFT,
+    /**
+     * Right commands.
+     */
+    RIGHT,
+    /**
+     * Brake commands.
+     */
+    BRAKE,
+    /**
+     * None commands.
+     */
+    NONE
+}
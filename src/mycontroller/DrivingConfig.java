@@ -0,0 +1,106 @@
+/**
+ * Group 23
+ */
+package mycontroller;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Reads the controller's entries from Driving.Properties, once, and tells
+ * which planner and exploration they name, e.g.
+ * <pre>
+ * Planner=kinodynamic
+ * Exploration=coverage
+ * </pre>
+ * The path planner and the nearest exploration are used when the entries
+ * are missing.
+ */
+public class DrivingConfig {
+    /**
+     * The Driving.Properties entry naming the planner.
+     */
+    public static final String PLANNER_PROPERTY = "Planner";
+
+    /**
+     * The name of the planner that finds a path with the PathFinder and then
+     * turns it into commands.
+     */
+    public static final String PATH_PLANNER = "path";
+
+    /**
+     * The name of the planner that searches the car's states for commands.
+     */
+    public static final String KINODYNAMIC_PLANNER = "kinodynamic";
+
+    /**
+     * The Driving.Properties entry naming how the map is explored.
+     */
+    public static final String EXPLORATION_PROPERTY = "Exploration";
+
+    /**
+     * The name of the exploration that drives to the nearest coordinate
+     * explored the least.
+     */
+    public static final String NEAREST_EXPLORATION = "nearest";
+
+    /**
+     * The name of the exploration that drives to where the car sees the most
+     * coordinates not seen yet for the distance driven.
+     */
+    public static final String COVERAGE_EXPLORATION = "coverage";
+
+    private static final String PROPERTIES_FILE = "Driving.Properties";
+
+    /**
+     * The driving properties, read once
+     */
+    private static volatile Properties drivingProperties;
+
+    private DrivingConfig() {
+    }
+
+    /**
+     * Whether Driving.Properties asks for the kinodynamic planner.
+     *
+     * @return true if the car's states should be searched for commands
+     */
+    public static boolean isKinodynamicConfigured() {
+        return KINODYNAMIC_PLANNER.equalsIgnoreCase(
+                property(PLANNER_PROPERTY, PATH_PLANNER));
+    }
+
+    /**
+     * Whether Driving.Properties asks for the coverage exploration.
+     *
+     * @return true if the car should explore where it sees the most
+     */
+    public static boolean isCoverageExplorationConfigured() {
+        return COVERAGE_EXPLORATION.equalsIgnoreCase(
+                property(EXPLORATION_PROPERTY, NEAREST_EXPLORATION));
+    }
+
+    /**
+     * An entry of Driving.Properties.
+     *
+     * @param key          the entry
+     * @param defaultValue the value used when the entry or file is missing
+     * @return the trimmed value of the entry
+     */
+    public static String property(String key, String defaultValue) {
+        Properties properties = drivingProperties;
+        if (properties == null) {
+            properties = new Properties();
+            try (FileReader inStream = new FileReader(PROPERTIES_FILE)) {
+                properties.load(inStream);
+            } catch (IOException e) {
+                /**
+                 * Without the file the defaults are used
+                 */
+            }
+            drivingProperties = properties;
+        }
+        return properties.getProperty(key, defaultValue).trim();
+    }
+}
@@ -4,13 +4,18 @@
 package mycontroller;
 
 import controller.CarController;
-import mycontroller.pathfinders.BreadthFirstSearchPathFinding;
+import mycontroller.pathfinders.DijkstraPathFinding;
+import mycontroller.pathfinders.KinodynamicPlanner;
 import mycontroller.pathfinders.PathFinder;
+import mycontroller.pathfinders.PathFinderFactory;
 import mycontroller.strategies.KeyPriorityStrategy;
 import mycontroller.strategies.StrategyFactory;
 import tiles.*;
 import utilities.Coordinate;
+import utilities.CoordinateMap;
+import utilities.CoordinateSet;
 import world.Car;
+import world.ViewDelta;
 import world.WorldSpatial;
 
 import java.util.*;
@@ -22,43 +27,41 @@ import java.util.HashMap;
  * The type My ai controller.
  */
 public class MyAIController extends CarController{
-	private enum Commands {
-        /**
-         * Forward commands.
-         */
-        FORWARD,
-        /**
-         * Reverse commands.
-         */
-        REVERSE,
-        /**
-         * Left commands.
-         */
-        LEFT,
-        /**
-         * Right commands.
-         */
-        RIGHT,
-        /**
-         * Brake commands.
-         */
-        BRAKE,
-        /**
-         * None commands.
-         */
-        NONE}
-
 
-    private ArrayList<Coordinate> recordCoordinate = new ArrayList<>();
+    private CoordinateSet recordCoordinate = new CoordinateSet();
 	private Queue<Commands> commandsQueue = new LinkedList<>();
 	private Queue<Coordinate> pathQueue;
 	private StrategyFactory strategy;
 
-    private HashMap<Coordinate, MapTile> map = super.getMap();
+    private CoordinateMap<MapTile> map = copyMap(super.getMap());
     private PathFinder pathFinder;
 
+    /**
+     * Weighs each trap by the health it takes and turns only where the car
+     * can, for paths the car would not survive or could not follow
+     * otherwise, made when first needed
+     */
+    private PathFinder trapPathFinder;
+
+    /**
+     * Plans commands directly over the car's states, when configured
+     */
+    private KinodynamicPlanner planner;
+
     private Route route;
 
+    /**
+     * The destinations the car has stepped out of its coordinate for since
+     * the last plan that reached its destination
+     */
+    private CoordinateSet steppedFor = new CoordinateSet();
+
+    /**
+     * The traps the car cannot turn on seen since the commands were planned,
+     * which the plan may turn on
+     */
+    private CoordinateSet unplannedNoTurns = new CoordinateSet();
+
     /**
      * Instantiates a new My ai controller.
      *
@@ -66,8 +69,11 @@ public class MyAIController extends CarController{
      */
 	public MyAIController(Car car) {
 		super(car);
-        route = new Route(map);
-        pathFinder = new BreadthFirstSearchPathFinding(route);
+        route = new Route(map, mapWidth(), mapHeight(), getMapFile());
+        pathFinder = PathFinderFactory.createPathFinder(route);
+        if (DrivingConfig.isKinodynamicConfigured()) {
+            planner = new KinodynamicPlanner(route, map);
+        }
         pathQueue = new LinkedList<>();
         strategy = new KeyPriorityStrategy(this.route, car, pathFinder);
 
@@ -82,16 +88,8 @@ public class MyAIController extends CarController{
 
         Coordinate currentCoordinate = getCurrentCoordinate();
 
-
-
-        /**
-         * Checking if collision is imminent, commands are interrupted and
-         * the car brakes
-         */
-        checkOncomingCollision();
-
-
         if ( commandsQueue.isEmpty()){
+            unplannedNoTurns.clear();
 
             /**
              * Generate the next coordinate the car should go through
@@ -99,43 +97,25 @@ public class MyAIController extends CarController{
 			Coordinate destination =
                     strategy.decideNextCoordinate(currentCoordinate);
 
-
-            /**
-             * Generate a list of coordinates that the car has to go through
-             * using certain path finding calculation
-             */
-            List<Coordinate> path =
-                    pathFinder.findBestPath
-                            (currentCoordinate, destination, getOrientation(),
-                                    strategy.avoidTrap());
-
             /**
-             * If a path is defined as unreachable, the coordinate is blocked
-             * and the path is recalculated until a reachable path is found
+             * The kinodynamic planner gives the commands directly, otherwise
+             * a path is found and converted into commands
              */
-            while(path == PathFinder.UNREACHABLE){
-                route.blockFromSource(destination.x, destination.y);
-                destination =  strategy.decideNextCoordinate(currentCoordinate);
-
-                path = pathFinder.findBestPath
-                        (currentCoordinate, destination, getOrientation(),
-                                strategy.avoidTrap());
+            if (planner != null) {
+                planCommands(currentCoordinate, destination);
+            } else {
+                planPath(currentCoordinate, destination);
             }
 
-            /**
-             * Coordinates queue for checkOncomingCollision
-             */
-            pathQueue = new LinkedList<>(path);
-            pathQueue.poll();
-
-            /**
-             * Converting a list of coordinates into commands based on the car
-             * condition
-             */
-            setCommandSequence(path);
-
 		}
 
+        /**
+         * Checking if collision is imminent, commands are interrupted and
+         * the car brakes. This is checked against the coordinate the next
+         * command leads to, including the first one of a new plan.
+         */
+        checkOncomingCollision();
+
 
         /**
          * Based on the next command in the queue, a command is given to the car
@@ -165,19 +145,261 @@ public class MyAIController extends CarController{
 
 	}
 
+    /**
+     * Finds the path to the destination with the PathFinder, moving on to
+     * other destinations while it is unreachable, and converts it into
+     * commands
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param destination the destination
+     */
+    private void planPath(Coordinate currentCoordinate,
+                          Coordinate destination){
+        /**
+         * Generate a list of coordinates that the car has to go through
+         * using certain path finding calculation
+         */
+        List<Coordinate> path =
+                pathFinder.findBestPath
+                        (currentCoordinate, destination, getOrientation(),
+                                strategy.avoidTrap());
+
+        /**
+         * If a path is defined as unreachable, the car steps out of its
+         * coordinate or the path is recalculated until a reachable path is
+         * found
+         */
+        while(path == PathFinder.UNREACHABLE){
+            List<Coordinate> step = stepOut(currentCoordinate, destination);
+            if(step != null){
+                followPath(step);
+                return;
+            }
+            destination =  strategy.decideNextCoordinate(currentCoordinate);
+
+            path = pathFinder.findBestPath
+                    (currentCoordinate, destination, getOrientation(),
+                            strategy.avoidTrap());
+        }
+        steppedFor.clear();
+
+        /**
+         * A PathFinder that does not weigh traps may pick a path through
+         * more of them than the car has health for, or turn on one the car
+         * cannot turn on, so such a path is found again with the traps
+         * weighed, keeping the one that costs less unless the car could not
+         * follow the first
+         */
+        int healthCost = healthCost(path);
+        boolean canFollow = canFollow(path);
+        if(!canFollow || healthCost >= getHealth()){
+            if(trapPathFinder == null){
+                trapPathFinder = new DijkstraPathFinding(route);
+            }
+            List<Coordinate> trapPath = trapPathFinder.findBestPath
+                    (currentCoordinate, destination, getOrientation(),
+                            strategy.avoidTrap());
+            if(trapPath != PathFinder.UNREACHABLE &&
+                    (!canFollow || healthCost(trapPath) < healthCost)){
+                path = trapPath;
+            }
+        }
+        followPath(path);
+    }
+
+    /**
+     * The health the car loses along a path, as Route weighs each trap by
+     * the health it takes
+     *
+     * @param path the path, starting from the current coordinate
+     * @return the trap costs of the coordinates after the first
+     */
+    private int healthCost(List<Coordinate> path){
+        int cost = 0;
+        for (int i = 1; i < path.size(); i++) {
+            Coordinate step = path.get(i);
+            cost += route.getTrapCost(step.x, step.y);
+        }
+        return cost;
+    }
+
+    /**
+     * Whether the car can follow a path, turning only where it can turn
+     *
+     * @param path the path, starting from the current coordinate
+     * @return false if the path turns on a trap the car cannot turn on
+     */
+    private boolean canFollow(List<Coordinate> path){
+        for (int i = 1; i < path.size() - 1; i++) {
+            Coordinate previous = path.get(i - 1);
+            Coordinate step = path.get(i);
+            Coordinate next = path.get(i + 1);
+            boolean turns = step.x - previous.x != next.x - step.x ||
+                    step.y - previous.y != next.y - step.y;
+            if(turns && !route.canTurn(step.x, step.y)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drives along a path found to a destination
+     *
+     * @param path the path, starting from the current coordinate
+     */
+    private void followPath(List<Coordinate> path){
+        /**
+         * Coordinates queue for checkOncomingCollision
+         */
+        pathQueue = new LinkedList<>(path);
+        pathQueue.poll();
+
+        /**
+         * Converting a list of coordinates into commands based on the car
+         * condition
+         */
+        setCommandSequence(path);
+    }
+
+    /**
+     * Deals with a destination that cannot be reached. The car's own
+     * coordinate is where it is to stay. One in another part of the map is
+     * blocked with the rest of its part. One in the car's part is only out
+     * of reach from where the car faces, as no path drives back through the
+     * car's coordinate, so the car steps forward or backward and plans again
+     * from there, once for each destination. Should it still be out of
+     * reach, the strategy gives it up, as it is road that other paths may
+     * go through, and the car waits for the next tick to decide again.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param destination the destination that cannot be reached
+     * @return the path to follow, or null if another destination is to be
+     * decided
+     */
+    private List<Coordinate> stepOut(Coordinate currentCoordinate,
+                                     Coordinate destination){
+        List<Coordinate> stay = Collections.singletonList(currentCoordinate);
+        if(destination.equals(currentCoordinate)) return stay;
+        if(route.blockUnreachable(currentCoordinate.x, currentCoordinate.y,
+                destination.x, destination.y)){
+            return null;
+        }
+        if(steppedFor.add(destination)){
+            int[] delta = facingDelta();
+            for (int sign = 1; sign >= -1; sign -= 2) {
+                int x = currentCoordinate.x + sign * delta[0];
+                int y = currentCoordinate.y + sign * delta[1];
+                if(route.isWithinMap(x, y) && !route.isBlocked(x, y)){
+                    return Arrays.asList(currentCoordinate,
+                            new Coordinate(x, y));
+                }
+            }
+        }
+        strategy.dropCoordinate(destination);
+        return stay;
+    }
+
+    /**
+     * The change in x and y of a step forward in the car's orientation
+     */
+    private int[] facingDelta(){
+        switch (getOrientation()){
+            case EAST:
+                return new int[]{1, 0};
+            case WEST:
+                return new int[]{-1, 0};
+            case NORTH:
+                return new int[]{0, 1};
+            default:
+                return new int[]{0, -1};
+        }
+    }
+
+    /**
+     * Plans the quickest commands from the car's current state to the
+     * destination, moving on to other destinations while it is unreachable
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param destination the destination
+     */
+    private void planCommands(Coordinate currentCoordinate,
+                              Coordinate destination){
+        KinodynamicPlanner.Plan plan = planner.plan(currentCoordinate,
+                getOrientation(), getVelocity(), destination,
+                strategy.avoidTrap());
+
+        /**
+         * If a destination is unreachable, the car steps out of its
+         * coordinate or the plan is recalculated until a reachable
+         * destination is found
+         */
+        while(plan == KinodynamicPlanner.UNREACHABLE){
+            List<Coordinate> step = stepOut(currentCoordinate, destination);
+            if(step != null){
+                followPath(step);
+                return;
+            }
+            destination = strategy.decideNextCoordinate(currentCoordinate);
+            plan = planner.plan(currentCoordinate, getOrientation(),
+                    getVelocity(), destination, strategy.avoidTrap());
+        }
+        steppedFor.clear();
+
+        /**
+         * Coordinates queue for checkOncomingCollision, one per command
+         */
+        pathQueue = new LinkedList<>(plan.getPositions());
+        commandsQueue = new LinkedList<>(plan.getCommands());
+
+        /**
+         * Already at the destination, the car stays there
+         */
+        if(commandsQueue.isEmpty()){
+            commandsQueue.add(Commands.BRAKE);
+        }
+    }
+
     /**
      * Check the next coordinate where the car will head to and it will stop
-     * should it be a trap that kills or a wall
+     * should it be a trap that kills or a wall, or a trap it cannot turn on
+     * that was seen after planning a turn there
      */
     private void checkOncomingCollision(){
 	    Coordinate nextPath = pathQueue.poll();
-	    if (nextPath != null && route.isBlocked(nextPath.x, nextPath.y)){
+	    if (nextPath != null && (route.isBlocked(nextPath.x, nextPath.y) ||
+                (isTurn(nextCommandAt(1)) &&
+                        unplannedNoTurns.contains(nextPath.x, nextPath.y)))){
 	        commandsQueue = new LinkedList<>();
 	        commandsQueue.add(Commands.BRAKE);
         }
     }
 
 
+    /**
+     * The command to be given a number of ticks from now
+     *
+     * @param ticks the number of ticks from now
+     * @return the command, or null if there is none
+     */
+    private Commands nextCommandAt(int ticks){
+        Iterator<Commands> commands = commandsQueue.iterator();
+        for (int i = 0; i < ticks && commands.hasNext(); i++) {
+            commands.next();
+        }
+        return commands.hasNext() ? commands.next() : null;
+    }
+
+    /**
+     * Whether a command turns the car
+     *
+     * @param command the command, or null
+     * @return whether it is LEFT or RIGHT
+     */
+    private static boolean isTurn(Commands command){
+        return command == Commands.LEFT || command == Commands.RIGHT;
+    }
+
     /**
      * setCommandSequence takes a list of coordinates that the car has to go
      * through and turns it into a list of commands the car has to do to reach
@@ -389,40 +611,39 @@ public class MyAIController extends CarController{
 
     /**
      * updateMap updates the traps found in the car's view and include these
-     * information in the map data and Route's gridMap
+     * information in the map data and Route's gridMap. Only the tiles that
+     * came into view since the last update are processed.
      */
     private void updateMap() {
 
         /**
-         * Getting and iterating through the tiles that the car has viewed
+         * Getting and iterating through the tiles that the car has newly seen
          */
-        HashMap<Coordinate, MapTile> currentView = getView();
+        ViewDelta changes = getViewChanges();
         MapTile newTile, currentTile;
-        for(Coordinate coord : currentView.keySet()) {
-            newTile = currentView.get(coord);
+        for(int i = 0; i < changes.size(); i++) {
+            int x = changes.x(i);
+            int y = changes.y(i);
+            newTile = changes.tile(i);
 
             /**
              * Updating the Route.gridMap based on the types of tile
              */
-            if(newTile.isType(MapTile.Type.TRAP) && newTile instanceof MudTrap){
-
-                /**
-                 * MudTraps are blocked
-                 */
-                route.blockCoordinate(coord.x, coord.y);
-            } else if (newTile.isType(MapTile.Type.TRAP) &&
-                    (newTile instanceof LavaTrap ||
-                            newTile instanceof GrassTrap)){
+            if(newTile.isType(MapTile.Type.TRAP)){
 
                 /**
-                 * Lava trap and grass traps are to be avoided unless necessary
+                 * Traps are recorded from their cost hints, so mud is blocked
+                 * while lava and grass are to be avoided unless necessary
                  */
-                route.setToAvoid(coord.x, coord.y);
+                route.setTrap(x, y, (TrapTile) newTile);
+                if (!((TrapTile) newTile).canTurn()) {
+                    unplannedNoTurns.add(x, y);
+                }
             } else {
                 /**
                  * Otherwise update the coordinates as explored
                  */
-                route.updateMap(coord);
+                route.updateMap(x, y);
             }
 
 
@@ -433,28 +654,44 @@ public class MyAIController extends CarController{
             if(newTile.isType(MapTile.Type.TRAP)
                     && newTile instanceof LavaTrap
                     && ((LavaTrap) newTile).getKey() > 0){
-                strategy.updateData(coord, StrategyFactory.ImportantData.KEY);
+                strategy.updateData(new Coordinate(x, y),
+                        StrategyFactory.ImportantData.KEY);
             } else if (newTile.isType(MapTile.Type.TRAP) &&
                     newTile instanceof HealthTrap){
-                strategy.updateData
-                        (coord, StrategyFactory.ImportantData.HEALING);
+                strategy.updateData(new Coordinate(x, y),
+                        StrategyFactory.ImportantData.HEALING);
             } else if (newTile.isType(MapTile.Type.FINISH)){
-                strategy.updateData(coord, StrategyFactory.ImportantData.EXIT);
+                strategy.updateData(new Coordinate(x, y),
+                        StrategyFactory.ImportantData.EXIT);
             }
 
             /**
              * Updating the maps
              */
-            Coordinate tmp = new Coordinate(coord.x, coord.y);
-            currentTile = map.get(tmp);
+            currentTile = map.get(x, y);
             if(currentTile != null && newTile.getType() != currentTile.getType()
-                    & !recordCoordinate.contains(coord)) {
-                map.put(tmp, newTile);
-                recordCoordinate.add(coord);
+                    & !recordCoordinate.contains(x, y)) {
+                map.put(x, y, newTile);
+                recordCoordinate.add(x, y);
             }
         }
     }
 
+    /**
+     * Copies the map given by the simulation into a coordinate map
+     *
+     * @param providedMap the map given by the simulation
+     * @return the copied map
+     */
+    private static CoordinateMap<MapTile> copyMap(
+            HashMap<Coordinate, MapTile> providedMap) {
+        CoordinateMap<MapTile> copy = new CoordinateMap<>(providedMap.size());
+        for (Map.Entry<Coordinate, MapTile> entry : providedMap.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        return copy;
+    }
+
     /**
      * Converting position from string into a coordinate
      *
@@ -2,13 +2,18 @@
  * Group 23
  */
 package mycontroller;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.File;
+import java.util.Arrays;
 
+import mycontroller.pathfinders.LandmarkTable;
 import mycontroller.pathfinders.PathFinder;
+import tiles.HealthTrap;
+import tiles.LavaTrap;
 import tiles.MapTile;
+import tiles.TrapTile;
 import utilities.Coordinate;
-import world.World;
+import utilities.CoordinateMap;
+import world.Car;
 
 /**
  * The class Route tracks the status of each coordinate in the map.
@@ -18,8 +23,88 @@ public class Route {
      * gridMap will dictates whether a coordinate is blocked, to avoid unless
      * necessary, or if it has been explored
      */
-    private int[][] gridMap = new int[World.MAP_HEIGHT][World.MAP_WIDTH];
-    private HashMap<Coordinate,MapTile> map;
+    private int[][] gridMap;
+    /**
+     * trapCost holds the extra cost of driving through each coordinate,
+     * derived from the trap on it
+     */
+    private int[][] trapCost;
+    private int maxTrapCost;
+    /**
+     * noTurn marks the coordinates the car cannot turn on
+     */
+    private boolean[][] noTurn;
+    /**
+     * The change log, the coordinates whose cost or passability changed, as
+     * y * width + x in the order they changed
+     */
+    private int[] changes = new int[64];
+    private int changeCount;
+    /**
+     * The connected part of the map each coordinate is in, as y * width + x,
+     * or NO_COMPONENT for blocked ones. Blocking a coordinate may split a
+     * part in two, in which case the parts are numbered again on the next
+     * query.
+     */
+    private int[] component;
+    private int[] componentQueue;
+    private boolean componentsStale;
+    /**
+     * Bit planes of the gridMap, a long for every 64 coordinates of a row,
+     * so whole rows can be filled and masked a word at a time: the blocked
+     * coordinates and the ones to avoid
+     */
+    private long[][] blockedBits;
+    private long[][] avoidBits;
+    private int words;
+    /**
+     * How many coordinates that are not blocked or to be avoided have been
+     * explored each number of times, and a number of times no smaller than
+     * the fewest any of them has been explored
+     */
+    private int[] visitCounts = new int[16];
+    private int fewestVisits;
+    /**
+     * Counts the coordinates that have never been explored, so how many
+     * of them are in any window can be found without going through it
+     */
+    private SummedAreaTable unexplored;
+    /**
+     * The dead end mask. A pocket is a part of the map only entered through
+     * one coordinate, found once from the walls, and is a dead end once
+     * none of its coordinates may hold anything: none are unexplored, a
+     * key, a heal tile or the exit. Every coordinate has the innermost
+     * pocket it is in, each pocket the pocket around it and the number of
+     * its coordinates that may still hold something, so the mask is kept
+     * up to date as coordinates are explored.
+     */
+    private int[] pocketOf;
+    private int[] outerPocket;
+    private int[] liveInPocket;
+    private boolean[] live;
+    private boolean[] special;
+    /**
+     * Scratch space for blockFromSource
+     */
+    private long[][] fillRegion;
+    private long[][] fillSeeds;
+    private long[] fillLine;
+    private long[] fillSpan;
+    private int[] fillRows;
+    private boolean[] fillQueued;
+    private CoordinateMap<MapTile> map;
+    private int width;
+    private int height;
+
+    /**
+     * The TMX file the map was loaded from, null for a generated map
+     */
+    private File mapFile;
+    /**
+     * The landmark table shared by the pathfinders, made when the first of
+     * them asks for it
+     */
+    private LandmarkTable landmarks;
     /**
      * The constant BLOCKED.
      */
@@ -32,15 +117,60 @@ public class Route {
      * The constant TO_AVOID.
      */
     public static final int TO_AVOID = -2;
+    /**
+     * The constant HEALTH_COST, the cost of each point of health lost.
+     */
+    public static final int HEALTH_COST = 1;
+    /**
+     * The constant NO_TURN_COST, the cost of a coordinate the car cannot
+     * turn on.
+     */
+    public static final int NO_TURN_COST = 1;
+    /**
+     * The constant NO_COMPONENT, the component of a blocked coordinate.
+     */
+    public static final int NO_COMPONENT = -1;
+    /**
+     * The constant NO_POCKET, the pocket of a coordinate in no pocket.
+     */
+    public static final int NO_POCKET = -1;
 
 
     /**
      * Instantiates a new Route.
      *
      * @param map      the map
+     * @param width    the width of the map
+     * @param height   the height of the map
+     * @param mapFile  the TMX file the map was loaded from, or null
      */
-    public Route(HashMap<Coordinate, MapTile> map) {
+    public Route(CoordinateMap<MapTile> map, int width, int height,
+                 File mapFile) {
         this.map = map;
+        this.width = width;
+        this.height = height;
+        this.mapFile = mapFile;
+        this.gridMap = new int[height][width];
+        this.trapCost = new int[height][width];
+        this.noTurn = new boolean[height][width];
+        this.component = new int[height * width];
+        this.componentQueue = new int[height * width];
+        this.words = (width + Long.SIZE - 1) / Long.SIZE;
+        this.blockedBits = new long[height][words];
+        this.avoidBits = new long[height][words];
+        this.fillRegion = new long[height][words];
+        this.fillSeeds = new long[height][words];
+        this.fillLine = new long[words];
+        this.fillSpan = new long[words];
+        this.fillRows = new int[height];
+        this.fillQueued = new boolean[height];
+        this.unexplored = new SummedAreaTable(width, height);
+        this.pocketOf = new int[height * width];
+        this.outerPocket = new int[height * width];
+        this.liveInPocket = new int[height * width];
+        this.live = new boolean[height * width];
+        this.special = new boolean[height * width];
+        Arrays.fill(pocketOf, NO_POCKET);
         buildMap();
     }
 
@@ -48,23 +178,43 @@ public class Route {
      * Builds the gridMap based on the map.
      */
     public void buildMap(){
-        for(Coordinate coord: map.keySet()){
-            MapTile currLoc = map.get(coord);
+        for(int i = 0; i < map.size(); i++){
+            MapTile currLoc = map.value(i);
+            if(currLoc.isType(MapTile.Type.FINISH)){
+                special[map.y(i) * width + map.x(i)] = true;
+            }
 
             /**
              * if current location is BLOCKED, then mark this grid as BLOCKED
              */
             if(currLoc.isType(MapTile.Type.WALL)){
-                gridMap[coord.y][coord.x] = BLOCKED;
+                setCell(map.x(i), map.y(i), BLOCKED);
             }
             /**
              * Otherwise, it is marked as passable
              */
             else{
 
-                gridMap[coord.y][coord.x] = TRAP_OR_ROAD;
+                setCell(map.x(i), map.y(i), TRAP_OR_ROAD);
+            }
+        }
+        componentsStale = true;
+
+        /**
+         * Counting the coordinates for each number of visits from scratch
+         */
+        Arrays.fill(visitCounts, 0);
+        fewestVisits = 0;
+        int[][] neverExplored = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int value = gridMap[y][x];
+                if(value >= TRAP_OR_ROAD) countVisits(value, 1);
+                if(value == TRAP_OR_ROAD) neverExplored[y][x] = 1;
             }
         }
+        unexplored.build(neverExplored);
+        findPockets();
     }
 
     /**
@@ -74,10 +224,9 @@ public class Route {
      * @param y the y coordinate
      * @return returns true when coordinate is in the map and false otherwise
      */
-    public static boolean isWithinMap(int x, int y){
+    public boolean isWithinMap(int x, int y){
 
-        return !(x < 0 || x >= World.MAP_WIDTH || y < 0
-                || y >= World.MAP_HEIGHT);
+        return !(x < 0 || x >= width || y < 0 || y >= height);
     }
 
     /**
@@ -87,47 +236,211 @@ public class Route {
      * @param y the y coordinate
      */
     public void blockCoordinate(int x, int y){
-        gridMap[y][x] = Route.BLOCKED;
+
+        /**
+         * Only a coordinate with more than one way out can split the part
+         * of the map it is in
+         */
+        if(!isBlocked(x, y) && openNeighbours(x, y) > 1){
+            componentsStale = true;
+        }
+        block(x, y);
+    }
+
+    private void block(int x, int y){
+        if(gridMap[y][x] != BLOCKED) logChange(x, y);
+        component[y * width + x] = NO_COMPONENT;
+        setCell(x, y, BLOCKED);
     }
 
 
     /**
-     * Block from source takes a coordinate and keeps blocking surrounding
-     * coordinates.
+     * Block from source takes a coordinate and blocks it along with every
+     * coordinate that can be reached from it, a whole part of the map at
+     * once.
      *
      * @param x the x coordinate
      * @param y the y coordinate
      */
     public void blockFromSource(int x, int y){
-        blockCoordinate(x, y);
-        ArrayList<Coordinate> possibleCoordinate = new ArrayList<>();
-        possibleCoordinate.add(new Coordinate(x, y));
-        blockFromSource(possibleCoordinate);
-    }
+        block(x, y);
 
-    private void blockFromSource(ArrayList<Coordinate> possibleCoordinates){
-        if(possibleCoordinates.isEmpty()) return;
-        ArrayList<Coordinate> nextPossibleCoordinates = new ArrayList<>();
+        /**
+         * Filling the part of the map around the coordinate a row at a time,
+         * starting from its neighbours
+         */
+        for (int row = 0; row < height; row++) {
+            Arrays.fill(fillRegion[row], 0L);
+            Arrays.fill(fillSeeds[row], 0L);
+        }
+        int queued = 0;
+        for (int i = 0; i < PathFinder.NUM_OF_POSSIBLE_DIRECTION; i++) {
+            int nextX = x + PathFinder.DIRECTIONS_DELTA[i];
+            int nextY = y + PathFinder.DIRECTIONS_DELTA
+                    [(i+1)%PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+            if(!isWithinMap(nextX, nextY) || isBlocked(nextX, nextY))
+                continue;
+
+            fillSeeds[nextY][nextX >>> 6] |= 1L << nextX;
+            queued = queueRow(nextY, queued);
+        }
+
+        while(queued > 0){
+            int row = fillRows[--queued];
+            fillQueued[row] = false;
+            if(fillRow(row)){
+                if(row > 0) queued = queueRow(row - 1, queued);
+                if(row < height - 1) queued = queueRow(row + 1, queued);
+            }
+        }
 
         /**
-         * Keep blocking surrounding coordinates until a wall is reached
+         * Blocking the part found. It was the whole of its part of the map,
+         * so no other part is split by it.
          */
-        for (Coordinate possibleCoordinate: possibleCoordinates) {
-            int sourceX = possibleCoordinate.x;
-            int sourceY = possibleCoordinate.y;
-            for (int i = 0; i < PathFinder.NUM_OF_POSSIBLE_DIRECTION; i++) {
-                int nextX = sourceX + PathFinder.DIRECTIONS_DELTA[i];
-                int nextY = sourceY + PathFinder.DIRECTIONS_DELTA
-                        [(i+1)%PathFinder.NUM_OF_POSSIBLE_DIRECTION];
-                if(!isWithinMap(nextX, nextY) || isBlocked(nextX, nextY))
-                    continue;
+        for (int row = 0; row < height; row++) {
+            for (int word = 0; word < words; word++) {
+                long bits = fillRegion[row][word];
+                while(bits != 0){
+                    block((word << 6) + Long.numberOfTrailingZeros(bits),
+                            row);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Block unreachable takes a destination no search could reach from the
+     * car. One in another part of the map is blocked along with the whole of
+     * its part. One in the car's part is road that is only out of reach from
+     * where the car faces, so it is left as it is.
+     *
+     * @param fromX the x coordinate of the car
+     * @param fromY the y coordinate of the car
+     * @param x the x coordinate of the destination
+     * @param y the y coordinate of the destination
+     * @return true if the destination was blocked
+     */
+    public boolean blockUnreachable(int fromX, int fromY, int x, int y){
+        if(isConnected(fromX, fromY, x, y)) return false;
+        blockFromSource(x, y);
+        return true;
+    }
+
+    private int queueRow(int row, int queued){
+        if(!fillQueued[row]){
+            fillQueued[row] = true;
+            fillRows[queued++] = row;
+        }
+        return queued;
+    }
+
+    /**
+     * Grows the region being filled along a row: every run of open
+     * coordinates in the row that touches the region, in this row or the
+     * ones next to it, is filled in. A run is filled from a seed with one
+     * addition, whose carry runs up to the end of the run, once as it is
+     * and once with the bits reversed to reach down to its start.
+     *
+     * @param row the row
+     * @return true if the region grew
+     */
+    private boolean fillRow(int row){
+        long[] region = fillRegion[row];
+        for (int word = 0; word < words; word++) {
+            long seeds = region[word] | fillSeeds[row][word];
+            if(row > 0) seeds |= fillRegion[row - 1][word];
+            if(row < height - 1) seeds |= fillRegion[row + 1][word];
+            fillLine[word] = seeds & openBits(row, word);
+            fillSeeds[row][word] = 0L;
+        }
+
+        long carry = 0;
+        for (int word = 0; word < words; word++) {
+            long open = openBits(row, word);
+            long seeds = fillLine[word] | (carry & open & 1L);
+            long up = (((open + seeds) ^ open) | seeds) & open;
+            carry = up >>> 63;
+            fillSpan[word] = up;
+        }
+
+        carry = 0;
+        boolean grew = false;
+        for (int word = words - 1; word >= 0; word--) {
+            long open = Long.reverse(openBits(row, word));
+            long seeds = Long.reverse(fillLine[word]) | (carry & open & 1L);
+            long down = (((open + seeds) ^ open) | seeds) & open;
+            carry = down >>> 63;
 
-                blockCoordinate(nextX, nextY);
-                nextPossibleCoordinates.add(new Coordinate(nextX, nextY));
+            long filled = fillSpan[word] | Long.reverse(down);
+            if(filled != region[word]){
+                region[word] = filled;
+                grew = true;
             }
         }
+        return grew;
+    }
+
+    /**
+     * The coordinates of a word of a row that are within the map and not
+     * blocked
+     */
+    private long openBits(int row, int word){
+        long open = ~blockedBits[row][word];
+        int rest = width - (word << 6);
+        return rest >= Long.SIZE ? open : open & ((1L << rest) - 1);
+    }
+
+    /**
+     * Whether any coordinate that is not blocked or to be avoided has not
+     * been explored yet.
+     *
+     * @return true if there is an unexplored coordinate left
+     */
+    public boolean hasUnexplored(){
+        return visitCounts[TRAP_OR_ROAD] > 0;
+    }
+
+    /**
+     * The number of coordinates in a rectangle that have never been
+     * explored, in O(1) once the table is up to date.
+     *
+     * @param fromX the smallest x coordinate
+     * @param fromY the smallest y coordinate
+     * @param toX the largest x coordinate
+     * @param toY the largest y coordinate
+     * @return the number of coordinates, the parts of the rectangle outside
+     * the map counting none
+     */
+    public int countUnexplored(int fromX, int fromY, int toX, int toY){
+        return unexplored.count(fromX, fromY, toX, toY);
+    }
+
+    /**
+     * The fewest times any coordinate that is not blocked or to be avoided
+     * has been explored. Coordinates are only ever explored more or taken
+     * out, so this only moves up, past the counts that have emptied.
+     *
+     * @return the number of visits, or Integer.MAX_VALUE if there are no
+     * such coordinates
+     */
+    public int getFewestVisits(){
+        while(fewestVisits < visitCounts.length &&
+                visitCounts[fewestVisits] == 0){
+            fewestVisits++;
+        }
+        return fewestVisits < visitCounts.length ? fewestVisits :
+                Integer.MAX_VALUE;
+    }
 
-        blockFromSource(nextPossibleCoordinates);
+    private void countVisits(int visits, int change){
+        if(visits >= visitCounts.length){
+            visitCounts = Arrays.copyOf(visitCounts,
+                    Math.max(visits + 1, visitCounts.length * 2));
+        }
+        visitCounts[visits] += change;
+        if(change > 0 && visits < fewestVisits) fewestVisits = visits;
     }
 
     /**
@@ -136,13 +449,21 @@ public class Route {
      * @param coordinate the coordinate
      */
     public void updateMap(Coordinate coordinate){
-        int x = coordinate.x;
-        int y = coordinate.y;
+        updateMap(coordinate.x, coordinate.y);
+    }
+
+    /**
+     * Update a coordinate in the map as explored.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    public void updateMap(int x, int y){
         if(!isWithinMap(x, y) || gridMap[y][x] == BLOCKED ||
                 gridMap[y][x] == TO_AVOID){
             return;
         }
-        gridMap[y][x] += 1;
+        setCell(x, y, gridMap[y][x] + 1);
     }
 
     /**
@@ -152,7 +473,117 @@ public class Route {
      * @param y the y coordinate
      */
     public void setToAvoid(int x, int y){
-        if(isWithinMap(x, y)) gridMap[y][x] = TO_AVOID;
+        if(!isWithinMap(x, y)) return;
+        if(gridMap[y][x] != TO_AVOID) logChange(x, y);
+
+        /**
+         * A blocked coordinate set to avoid can be driven through again
+         */
+        if(gridMap[y][x] == BLOCKED) componentsStale = true;
+        setCell(x, y, TO_AVOID);
+    }
+
+    /**
+     * Sets the value of a coordinate in the gridMap, its bits in the bit
+     * planes and its count of visits.
+     */
+    private void setCell(int x, int y, int value){
+        if(gridMap[y][x] >= TRAP_OR_ROAD) countVisits(gridMap[y][x], -1);
+        if(value >= TRAP_OR_ROAD) countVisits(value, 1);
+        if(gridMap[y][x] == TRAP_OR_ROAD && value != TRAP_OR_ROAD){
+            unexplored.add(x, y, -1);
+        } else if(gridMap[y][x] != TRAP_OR_ROAD && value == TRAP_OR_ROAD){
+            unexplored.add(x, y, 1);
+        }
+        gridMap[y][x] = value;
+        updateLive(x, y);
+        int word = x >>> 6;
+        long bit = 1L << x;
+        blockedBits[y][word] &= ~bit;
+        avoidBits[y][word] &= ~bit;
+        if(value == BLOCKED){
+            blockedBits[y][word] |= bit;
+        } else if(value == TO_AVOID){
+            avoidBits[y][word] |= bit;
+        }
+    }
+
+    /**
+     * Records a trap found on a coordinate based on its cost hints. Traps
+     * that stop the car are blocked, traps that cost something are to be
+     * avoided unless necessary, and the rest are marked as explored.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param trap the trap
+     */
+    public void setTrap(int x, int y, TrapTile trap){
+        if(!isWithinMap(x, y)) return;
+        int cost = trapCost(trap);
+        noTurn[y][x] = !trap.canTurn();
+
+        /**
+         * A key or a heal tile is never in a dead end
+         */
+        if(trap instanceof HealthTrap ||
+                (trap instanceof LavaTrap && ((LavaTrap) trap).getKey() > 0)){
+            special[y * width + x] = true;
+        }
+        if(trap.stopsCar()){
+            blockCoordinate(x, y);
+        } else if(cost > 0){
+            setToAvoid(x, y);
+            if(trapCost[y][x] != cost) logChange(x, y);
+            trapCost[y][x] = cost;
+            maxTrapCost = Math.max(maxTrapCost, cost);
+        } else {
+            updateMap(x, y);
+        }
+    }
+
+    /**
+     * Whether the car can turn on a coordinate.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return false if a trap on it stops the car from turning
+     */
+    public boolean canTurn(int x, int y){
+        return !noTurn[y][x];
+    }
+
+    /**
+     * The extra cost of driving through a coordinate.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the cost of the trap on it, or 0
+     */
+    public int getTrapCost(int x, int y){
+        return trapCost[y][x];
+    }
+
+    /**
+     * The largest extra cost of any coordinate.
+     *
+     * @return the maximum trap cost
+     */
+    public int getMaxTrapCost(){
+        return maxTrapCost;
+    }
+
+    /**
+     * The extra cost of driving through a trap, from the cost hints of the
+     * trap: the health it takes and whether the car can turn on it.
+     *
+     * @param trap the trap
+     * @return the extra cost, at least 0
+     */
+    public static int trapCost(TrapTile trap){
+        int cost = Math.round(-trap.getHealthChange(Car.UPDATE_DELTA) *
+                HEALTH_COST);
+        if(!trap.canTurn()) cost += NO_TURN_COST;
+        return Math.max(cost, 0);
     }
 
     /**
@@ -162,7 +593,18 @@ public class Route {
      * @return the boolean
      */
     public boolean toAvoid(Coordinate coordinate){
-        return gridMap[coordinate.y][coordinate.x] == TO_AVOID;
+        return toAvoid(coordinate.x, coordinate.y);
+    }
+
+    /**
+     * To avoid boolean.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the boolean
+     */
+    public boolean toAvoid(int x, int y){
+        return (avoidBits[y][x >>> 6] & 1L << x) != 0;
     }
 
     /**
@@ -173,7 +615,253 @@ public class Route {
      * @return true if a coordinate is blocked and false otherwise
      */
     public boolean isBlocked(int x, int y){
-        return gridMap[y][x] == BLOCKED;
+        return (blockedBits[y][x >>> 6] & 1L << x) != 0;
+    }
+
+    /**
+     * Whether a path of coordinates that are not blocked could lead from one
+     * coordinate to another. The car may stand on a blocked coordinate, so
+     * the first coordinate is not required to be open; its neighbours are
+     * looked at instead. A false answer means no search can find a path,
+     * while a true one still needs a search, as the car cannot drive
+     * through its own coordinate or start off sideways.
+     *
+     * @param fromX the x coordinate of the car
+     * @param fromY the y coordinate of the car
+     * @param toX the x coordinate of the destination
+     * @param toY the y coordinate of the destination
+     * @return false if the destination is certainly unreachable
+     */
+    public boolean isConnected(int fromX, int fromY, int toX, int toY){
+        if(fromX == toX && fromY == toY) return true;
+        if(!isWithinMap(toX, toY) || isBlocked(toX, toY)) return false;
+        if(componentsStale) labelComponents();
+
+        int target = component[toY * width + toX];
+        if(isWithinMap(fromX, fromY) && !isBlocked(fromX, fromY)){
+            return component[fromY * width + fromX] == target;
+        }
+        for (int i = 0; i < PathFinder.NUM_OF_POSSIBLE_DIRECTION; i++) {
+            int nextX = fromX + PathFinder.DIRECTIONS_DELTA[i];
+            int nextY = fromY + PathFinder.DIRECTIONS_DELTA
+                    [(i+1)%PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+            if(isWithinMap(nextX, nextY) && !isBlocked(nextX, nextY) &&
+                    component[nextY * width + nextX] == target) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Numbers the connected parts of the map with a flood fill from every
+     * open coordinate not numbered yet, each part by its first coordinate.
+     */
+    private void labelComponents(){
+        Arrays.fill(component, NO_COMPONENT);
+        for (int start = 0; start < component.length; start++) {
+            if(component[start] != NO_COMPONENT ||
+                    gridMap[start / width][start % width] == BLOCKED) continue;
+
+            component[start] = start;
+            componentQueue[0] = start;
+            int head = 0;
+            int tail = 1;
+            while(head < tail){
+                int cell = componentQueue[head++];
+                int cellX = cell % width;
+                int cellY = cell / width;
+                for (int i = 0; i < PathFinder.NUM_OF_POSSIBLE_DIRECTION; i++){
+                    int nextX = cellX + PathFinder.DIRECTIONS_DELTA[i];
+                    int nextY = cellY + PathFinder.DIRECTIONS_DELTA
+                            [(i+1)%PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+                    if(!isWithinMap(nextX, nextY) || isBlocked(nextX, nextY))
+                        continue;
+
+                    int next = nextY * width + nextX;
+                    if(component[next] == NO_COMPONENT){
+                        component[next] = start;
+                        componentQueue[tail++] = next;
+                    }
+                }
+            }
+        }
+        componentsStale = false;
+    }
+
+    /**
+     * Whether a coordinate is in a dead end: behind a single coordinate,
+     * with every coordinate there explored and none of them a key, a heal
+     * tile or the exit. A search from outside a dead end never needs to go in.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the coordinate is in a dead end
+     */
+    public boolean isDeadEnd(int x, int y){
+        int pocket = pocketOf[y * width + x];
+        return pocket != NO_POCKET && liveInPocket[pocket] == 0;
+    }
+
+    /**
+     * Finds the pockets with a depth first search over the coordinates that
+     * are not blocked, from the exit first so it is never in one. A
+     * coordinate from which the search below it reaches nothing found
+     * before its parent is only entered through its parent, so the
+     * coordinates below it are a pocket.
+     */
+    private void findPockets(){
+        int cells = width * height;
+        int[] found = new int[cells];
+        int[] low = new int[cells];
+        int[] parent = new int[cells];
+        int[] tried = new int[cells];
+        int[] preorder = new int[cells];
+        int[] stack = new int[cells];
+        Arrays.fill(found, -1);
+        int time = 0;
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < cells; root++) {
+                if(found[root] != -1 || (pass == 0 && !special[root]) ||
+                        gridMap[root / width][root % width] == BLOCKED)
+                    continue;
+
+                found[root] = low[root] = time;
+                preorder[time++] = root;
+                parent[root] = NO_POCKET;
+                tried[root] = 0;
+                stack[0] = root;
+                int top = 0;
+                while(top >= 0){
+                    int cell = stack[top];
+                    if(tried[cell] == PathFinder.NUM_OF_POSSIBLE_DIRECTION){
+                        top--;
+                        int up = parent[cell];
+                        if(up != NO_POCKET) low[up] = Math.min(low[up],
+                                low[cell]);
+                        continue;
+                    }
+
+                    int i = tried[cell]++;
+                    int nextX = cell % width + PathFinder.DIRECTIONS_DELTA[i];
+                    int nextY = cell / width + PathFinder.DIRECTIONS_DELTA
+                            [(i+1)%PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+                    if(!isWithinMap(nextX, nextY) || isBlocked(nextX, nextY))
+                        continue;
+
+                    int next = nextY * width + nextX;
+                    if(found[next] == -1){
+                        found[next] = low[next] = time;
+                        preorder[time++] = next;
+                        parent[next] = cell;
+                        tried[next] = 0;
+                        stack[++top] = next;
+                    } else if(next != parent[cell]){
+                        low[cell] = Math.min(low[cell], found[next]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Giving each coordinate its innermost pocket from the top of the
+         * search down, then counting the coordinates that may hold
+         * something from the bottom up
+         */
+        Arrays.fill(pocketOf, NO_POCKET);
+        Arrays.fill(liveInPocket, 0);
+        for (int cell = 0; cell < cells; cell++) {
+            live[cell] = mayHoldSomething(cell % width, cell / width);
+        }
+        for (int i = 0; i < time; i++) {
+            int cell = preorder[i];
+            int up = parent[cell];
+            if(up == NO_POCKET) continue;
+            if(low[cell] >= found[up]){
+                pocketOf[cell] = cell;
+                outerPocket[cell] = pocketOf[up];
+            } else {
+                pocketOf[cell] = pocketOf[up];
+            }
+        }
+        for (int i = time - 1; i >= 0; i--) {
+            int cell = preorder[i];
+            if(live[cell]) liveInPocket[cell]++;
+            if(parent[cell] != NO_POCKET){
+                liveInPocket[parent[cell]] += liveInPocket[cell];
+            }
+        }
+    }
+
+    /**
+     * Updates whether a coordinate may hold something, and the pockets
+     * around it with it
+     */
+    private void updateLive(int x, int y){
+        int cell = y * width + x;
+        boolean nowLive = mayHoldSomething(x, y);
+        if(nowLive == live[cell]) return;
+
+        live[cell] = nowLive;
+        int change = nowLive ? 1 : -1;
+        for (int pocket = pocketOf[cell]; pocket != NO_POCKET;
+             pocket = outerPocket[pocket]) {
+            liveInPocket[pocket] += change;
+        }
+    }
+
+    private boolean mayHoldSomething(int x, int y){
+        return gridMap[y][x] == TRAP_OR_ROAD ||
+                (special[y * width + x] && gridMap[y][x] != BLOCKED);
+    }
+
+    private int openNeighbours(int x, int y){
+        int count = 0;
+        for (int i = 0; i < PathFinder.NUM_OF_POSSIBLE_DIRECTION; i++) {
+            int nextX = x + PathFinder.DIRECTIONS_DELTA[i];
+            int nextY = y + PathFinder.DIRECTIONS_DELTA
+                    [(i+1)%PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+            if(isWithinMap(nextX, nextY) && !isBlocked(nextX, nextY)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Number of entries in the change log. Blocking a coordinate and
+     * setting one to avoid or changing its trap cost add an entry; marking a
+     * coordinate as explored does not, as it does not change how it can be
+     * driven through. Readers remember how far they have read.
+     *
+     * @return the number of changes so far
+     */
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * The x coordinate of a change log entry.
+     *
+     * @param index the entry, below getChangeCount
+     * @return the x coordinate
+     */
+    public int getChangedX(int index) {
+        return changes[index] % width;
+    }
+
+    /**
+     * The y coordinate of a change log entry.
+     *
+     * @param index the entry, below getChangeCount
+     * @return the y coordinate
+     */
+    public int getChangedY(int index) {
+        return changes[index] / width;
+    }
+
+    private void logChange(int x, int y) {
+        if(changeCount == changes.length){
+            changes = Arrays.copyOf(changes, changeCount * 2);
+        }
+        changes[changeCount++] = y * width + x;
     }
 
     /**
@@ -186,11 +874,50 @@ public class Route {
     }
 
 
+    /**
+     * Gets the TMX file the map was loaded from.
+     *
+     * @return the file, or null for a generated map
+     */
+    public File getMapFile() {
+        return mapFile;
+    }
+
+    /**
+     * Gets the landmark table of the map, starting to work it out on the
+     * first call. Pathfinders ask for it as they are made, before anything
+     * other than the walls is blocked.
+     *
+     * @return the landmark table
+     */
+    public LandmarkTable getLandmarks() {
+        if (landmarks == null) landmarks = new LandmarkTable(this);
+        return landmarks;
+    }
+
+    /**
+     * Gets the width of the map.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the map.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
     /**
      * Prints the grid map.
      */
     public void printGridMap(){
-        for (int i = World.MAP_HEIGHT-1; i >= 0; i--) {
+        for (int i = height-1; i >= 0; i--) {
             for (int a : gridMap[i]){
                 System.out.printf("%2d ", a);
             }
@@ -0,0 +1,115 @@
+/**
+ * Group 23
+ */
+package mycontroller;
+
+/**
+ * Counts kept for the coordinates of a map with a summed-area table, the
+ * total of every rectangle from the corner of the map, so the total of any
+ * rectangle is found from four of them in O(1).
+ *
+ * Changing a count only changes the totals of its row and the rows above.
+ * The table is brought up to date from the lowest row changed the next time
+ * it is counted, so the changes between counts cost one pass over those rows
+ * rather than one each.
+ */
+public class SummedAreaTable {
+    private int width;
+    private int height;
+
+    /**
+     * The count of every coordinate, as y * width + x
+     */
+    private int[] counts;
+
+    /**
+     * The totals, row by row, with an empty first row and column so the
+     * rectangles ending before the map count nothing
+     */
+    private int[] totals;
+
+    /**
+     * The lowest row whose totals are out of date, or height if none are
+     */
+    private int staleFrom;
+
+    /**
+     * Instantiates a new summed-area table with every count at zero.
+     *
+     * @param width the width of the map
+     * @param height the height of the map
+     */
+    public SummedAreaTable(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.counts = new int[width * height];
+        this.totals = new int[(width + 1) * (height + 1)];
+        this.staleFrom = height;
+    }
+
+    /**
+     * Sets every count at once.
+     *
+     * @param values the count of every coordinate, by y then x
+     */
+    public void build(int[][] values) {
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(values[y], 0, counts, y * width, width);
+        }
+        staleFrom = 0;
+    }
+
+    /**
+     * Adds to the count of a coordinate.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param delta the amount to add
+     */
+    public void add(int x, int y, int delta) {
+        counts[y * width + x] += delta;
+        if (y < staleFrom) staleFrom = y;
+    }
+
+    /**
+     * The total count of a rectangle, its corners included. The parts of
+     * the rectangle outside the map count nothing.
+     *
+     * @param fromX the smallest x coordinate
+     * @param fromY the smallest y coordinate
+     * @param toX the largest x coordinate
+     * @param toY the largest y coordinate
+     * @return the total count
+     */
+    public int count(int fromX, int fromY, int toX, int toY) {
+        fromX = Math.max(fromX, 0);
+        fromY = Math.max(fromY, 0);
+        toX = Math.min(toX, width - 1);
+        toY = Math.min(toY, height - 1);
+        if (fromX > toX || fromY > toY) return 0;
+        if (staleFrom < height) refresh();
+
+        int stride = width + 1;
+        int top = (toY + 1) * stride;
+        int bottom = fromY * stride;
+        return totals[top + toX + 1] - totals[top + fromX] -
+                totals[bottom + toX + 1] + totals[bottom + fromX];
+    }
+
+    /**
+     * Works the totals out again from the lowest row changed.
+     */
+    private void refresh() {
+        int stride = width + 1;
+        for (int y = staleFrom; y < height; y++) {
+            int below = y * stride;
+            int row = below + stride;
+            int running = 0;
+            for (int x = 0; x < width; x++) {
+                running += counts[y * width + x];
+                totals[row + x + 1] = totals[below + x + 1] + running;
+            }
+        }
+        staleFrom = height;
+    }
+}
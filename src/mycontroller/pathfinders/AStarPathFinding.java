@@ -0,0 +1,159 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+import utilities.Coordinate;
+import world.WorldSpatial;
+
+/**
+ * The PathFinder that uses the A* Algorithm with the Manhattan distance as
+ * the heuristic. As every move costs DISTANCE and the car can only move in
+ * the four directions, the heuristic never overestimates, so the paths are
+ * as short as the ones found by Breadth First Search while far fewer
+ * coordinates are expanded when heading for a single destination.
+ *
+ * Once the LandmarkTable of the Route is ready, its landmark estimates raise
+ * the heuristic wherever walls make the way around longer than the
+ * Manhattan distance. Searches never wait for it: until it is ready they
+ * estimate with the Manhattan distance alone.
+ */
+public class AStarPathFinding extends AbstractPathFinding{
+    /**
+     * Priority offset which makes deeper coordinates come first among the
+     * ones with the same estimate
+     */
+    private static final long DEPTH_TIE_BREAK = Integer.MAX_VALUE;
+
+    private CellPriorityQueue open;
+
+    /**
+     * The distances from the landmarks, worked out in the background
+     */
+    private LandmarkTable landmarks;
+
+    /**
+     * Whether the landmarks were ready when the current search started
+     */
+    private boolean useLandmarks;
+
+    /**
+     * The first coordinates the car can reach
+     */
+    private int[] initialCells = new int[2];
+
+    /**
+     * Instantiates a new A* path finding.
+     *
+     * @param route the route
+     */
+    public AStarPathFinding(Route route) {
+        super(route);
+        open = new CellPriorityQueue(route.getWidth() + route.getHeight());
+        landmarks = route.getLandmarks();
+    }
+
+    /**
+     * Runs A* from the current coordinate until the destination is taken off
+     * the open queue. Without a destination the heuristic is zero, so every
+     * reachable coordinate is given its shortest distance.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     * @param destination the destination
+     */
+    @Override
+    protected void search(Coordinate currentCoordinate,
+                          WorldSpatial.Direction orientation,
+                          Coordinate destination){
+        int width = route.getWidth();
+        int target = cellOf(destination);
+
+        startSearch(cellOf(currentCoordinate));
+        open.clear();
+
+        /**
+         * A car must move one coordinate forward or backward at first, so
+         * the search starts from those coordinates
+         */
+        int count = seedInitialCoordinates(currentCoordinate, orientation,
+                initialCells);
+        for (int i = 0; i < count; i++) {
+            open.push(priority(initialCells[i], DISTANCE, target, width),
+                    initialCells[i]);
+        }
+
+        while (!open.isEmpty()) {
+            long priority = open.peekPriority();
+            int cell = open.poll();
+            int cellDistance = distance(cell);
+
+            /**
+             * Skipping entries left behind after a shorter way to the
+             * coordinate was found
+             */
+            if (priority != priority(cell, cellDistance, target, width)) {
+                continue;
+            }
+
+            /**
+             * Reaching a destination means that the algorithm should stop
+             */
+            if (cell == target) return;
+
+            int sourceX = cell % width;
+            int sourceY = cell / width;
+            int nextDistance = cellDistance + DISTANCE;
+
+            for (int i = 0; i < NUM_OF_POSSIBLE_DIRECTION; i++) {
+                int nextX = sourceX + DIRECTIONS_DELTA[i];
+                int nextY = sourceY +
+                        DIRECTIONS_DELTA[(i+1)%NUM_OF_POSSIBLE_DIRECTION];
+
+                if(!isPassable(nextX, nextY)) continue;
+                int next = nextY * width + nextX;
+
+                /**
+                 * Update the distance values should it be faster
+                 */
+                if(nextDistance < distance(next)){
+                    reach(next, nextDistance, cell);
+                    open.push(priority(next, nextDistance, target, width),
+                            next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the landmarks are ready once, as the search starts, so
+     * the heuristic stays the same within every search
+     */
+    @Override
+    protected void startSearch(int source){
+        useLandmarks = landmarks.isReady();
+        super.startSearch(source);
+    }
+
+    /**
+     * The open queue priority of a cell: its estimated total distance, with
+     * the deeper cell first among equal estimates
+     */
+    protected long priority(int cell, int cellDistance, int target,
+                            int width){
+        long estimate = cellDistance + heuristic(cell, target, width);
+        return estimate * DEPTH_TIE_BREAK + (DEPTH_TIE_BREAK - cellDistance);
+    }
+
+    /**
+     * The lower bound of the distance from a cell to the target, or zero
+     * without a target
+     */
+    private int heuristic(int cell, int target, int width){
+        if (target == NO_PARENT) return 0;
+        if (useLandmarks) return landmarks.lowerBound(cell, target);
+        return Math.abs(cell % width - target % width) +
+                Math.abs(cell / width - target / width);
+    }
+}
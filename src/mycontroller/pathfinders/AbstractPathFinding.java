@@ -0,0 +1,470 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+import utilities.Coordinate;
+import utilities.CoordinateSet;
+import world.WorldSpatial;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The base of the grid PathFinders. It keeps the per search scratch arrays,
+ * the rules for which coordinates the car may drive through and the handling
+ * of traps, leaving only the search itself to the subclasses.
+ */
+public abstract class AbstractPathFinding implements PathFinder{
+    /**
+     * Dummy values, to be put in search so that it process the
+     * distance to every coordinates
+     */
+    protected static final Coordinate PROCESS_EVERYTHING =
+            new Coordinate(-1,-1);
+
+    /**
+     * To mark a coordinate as has not been reached
+     */
+    protected static final int NOT_REACHED = Integer.MAX_VALUE;
+
+    /**
+     * To mark a coordinate as having no parent
+     */
+    protected static final int NO_PARENT = -1;
+
+    /**
+     * Distances from the source, flat with a row stride of the map width.
+     * A value is only valid when its visited stamp equals the current epoch,
+     * so a search starts by moving to a new epoch instead of clearing.
+     */
+    private int[] distance;
+
+    /**
+     * The epoch in which each cell was last reached
+     */
+    private int[] visited;
+
+    /**
+     * The current search generation
+     */
+    private int epoch;
+
+    /**
+     * The cell index each cell was reached from, valid alongside distance
+     */
+    private int[] parent;
+
+    /**
+     * The route being searched
+     */
+    protected Route route;
+
+    /**
+     * Dictates whether to avoid the traps or not
+     */
+    protected boolean avoidTrap;
+
+    /**
+     * Whether the search leaves out the dead ends Route knows of
+     */
+    private boolean skipDeadEnds;
+
+    /**
+     * Instantiates a new path finding.
+     *
+     * @param route the route
+     */
+    protected AbstractPathFinding(Route route) {
+        distance = new int[route.getHeight() * route.getWidth()];
+        visited = new int[route.getHeight() * route.getWidth()];
+        parent = new int[route.getHeight() * route.getWidth()];
+        this.route = route;
+    }
+
+    @Override
+    public List<Coordinate> findBestPath(Coordinate currentCoordinate,
+                                         Coordinate destination,
+                                         WorldSpatial.Direction orientation,
+                                         boolean avoidTrap) {
+        if(!mayReach(currentCoordinate, destination)) return UNREACHABLE;
+        this.avoidTrap = avoidTrap;
+
+        /**
+         * Manipulating distArray based on avoidTrap
+         */
+        search(currentCoordinate, orientation, destination);
+
+        /**
+         * Should the coordinate, after processing, is found as unreachable,
+         * it recalculates everything again with the exception of being
+         * able to go through the trap. This happens when the only way to
+         * get to the destination is through the trap.
+         */
+        if(avoidTrap && !isReachable(destination)) {
+            this.avoidTrap = false;
+            search(currentCoordinate, orientation, destination);
+        }
+
+        /**
+         * returning the processed path, or UNREACHABLE if even going through
+         * the traps does not lead to the destination
+         */
+        if(!isReachable(destination)) return UNREACHABLE;
+        return backtrack(currentCoordinate, destination);
+    }
+
+    @Override
+    public Coordinate findNearestCoordinate(CoordinateSet coordinates,
+                                            Coordinate currentCoordinate,
+                                            WorldSpatial.Direction orientation,
+                                            CoordinateSet
+                                                        unreachableCoordinates){
+
+        int nearestIndex = -1;
+
+        /**
+         * A coordinate in the car's part of the map that is only out of reach
+         * from where the car faces
+         */
+        int facedAwayIndex = -1;
+
+        /**
+         * initial values
+         */
+        int minimumDistance = Integer.MAX_VALUE;
+
+        /**
+         * Calculates distances to the coordinates from source, turning off
+         * the avoid trap. Without any coordinate in the car's part of the
+         * map, there is nothing to search for. Keys, heal tiles and the exit
+         * are never in a dead end, so the dead ends are left out unless the
+         * car needs to drive out of one first.
+         */
+        avoidTrap = false;
+        skipDeadEnds = !nearDeadEnd(currentCoordinate);
+        if(anyMayBeReached(coordinates, currentCoordinate)) {
+            measureDistances(coordinates, currentCoordinate, orientation);
+        } else {
+            startSearch(cellOf(currentCoordinate));
+        }
+        skipDeadEnds = false;
+        avoidTrap = true;
+
+        /**
+         * Finding the coordinate with the smallest distance
+         */
+        for(int i = 0; i < coordinates.size(); i++){
+            int x = coordinates.x(i);
+            int y = coordinates.y(i);
+
+            /**
+             * Should it be unreachable, it is blocked and added to the
+             * unreachable coordinates list, unless it is in the car's part
+             * of the map, where it is kept for when the car has moved
+             */
+            int cellDistance = distance(y * route.getWidth() + x);
+            if(cellDistance == NOT_REACHED) {
+
+                /**
+                 * Marking the coordinate and blocking it so that it is not
+                 * calculated again
+                 */
+                if(route.blockUnreachable(currentCoordinate.x,
+                        currentCoordinate.y, x, y)){
+                    unreachableCoordinates.add(x, y);
+                } else if(facedAwayIndex < 0){
+                    facedAwayIndex = i;
+                }
+            } else if(minimumDistance > cellDistance){
+
+                /**
+                 * Updating the nearest coordinates
+                 */
+                minimumDistance = cellDistance;
+                nearestIndex = i;
+            }
+        }
+
+        /**
+         * With nothing else to reach, one the car faces away from is given,
+         * so the car moves and tries again
+         */
+        if(nearestIndex < 0) nearestIndex = facedAwayIndex;
+        return nearestIndex < 0 ? null : coordinates.get(nearestIndex);
+    }
+
+    /**
+     * Searches from the current coordinate, recording distances and parents
+     * with reach, until the shortest path to the destination is known. With
+     * PROCESS_EVERYTHING as the destination every reachable coordinate must
+     * be given its shortest distance.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     * @param destination the destination
+     */
+    protected abstract void search(Coordinate currentCoordinate,
+                                   WorldSpatial.Direction orientation,
+                                   Coordinate destination);
+
+    /**
+     * Gives the coordinates their distances from the current coordinate,
+     * read afterwards with distance. By default every reachable coordinate
+     * is searched.
+     *
+     * @param coordinates the coordinates to measure
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     */
+    protected void measureDistances(CoordinateSet coordinates,
+                                    Coordinate currentCoordinate,
+                                    WorldSpatial.Direction orientation){
+        search(currentCoordinate, orientation, PROCESS_EVERYTHING);
+    }
+
+    /**
+     * Whether a path to the destination may exist, going by the parts of the
+     * map Route keeps, so certainly unreachable destinations cost no search.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param destination the destination
+     * @return false if no search can reach the destination
+     */
+    protected boolean mayReach(Coordinate currentCoordinate,
+                               Coordinate destination) {
+        return route.isConnected(currentCoordinate.x, currentCoordinate.y,
+                destination.x, destination.y);
+    }
+
+    /**
+     * Whether the car is in a dead end or next to one
+     */
+    private boolean nearDeadEnd(Coordinate currentCoordinate){
+        for (int i = -1; i < NUM_OF_POSSIBLE_DIRECTION; i++) {
+            int x = currentCoordinate.x;
+            int y = currentCoordinate.y;
+            if (i >= 0) {
+                x += DIRECTIONS_DELTA[i];
+                y += DIRECTIONS_DELTA[(i+1)%NUM_OF_POSSIBLE_DIRECTION];
+            }
+            if (route.isWithinMap(x, y) && route.isDeadEnd(x, y)) return true;
+        }
+        return false;
+    }
+
+    private boolean anyMayBeReached(CoordinateSet coordinates,
+                                    Coordinate currentCoordinate) {
+        for (int i = 0; i < coordinates.size(); i++) {
+            if (route.isConnected(currentCoordinate.x, currentCoordinate.y,
+                    coordinates.x(i), coordinates.y(i))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * To check whether a coordinate is reachable, can only be used after
+     * search.
+     *
+     * @param destination the coordinate to check
+     * @return true if a coordinate is reachable and false otherwise
+     */
+    protected boolean isReachable(Coordinate destination) {
+
+        /**
+         * If after search, the coordinate's distance value is not updated,
+         * then it is unreachable
+         */
+        int cell = cellOf(destination);
+        return cell != NO_PARENT && distance(cell) != NOT_REACHED;
+    }
+
+    /**
+     * The cell index of a coordinate
+     * @param coordinate the coordinate
+     * @return y * width + x, or NO_PARENT if it is outside the map
+     */
+    protected int cellOf(Coordinate coordinate){
+        if(!route.isWithinMap(coordinate.x, coordinate.y)) return NO_PARENT;
+        return coordinate.y * route.getWidth() + coordinate.x;
+    }
+
+    /**
+     * Starts a new search generation from the source cell, which marks every
+     * other coordinate as not reached without touching the arrays. The
+     * stamps are only cleared when the counter wraps around.
+     *
+     * @param source the cell index of the car
+     */
+    protected void startSearch(int source){
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
+        reach(source, 0, NO_PARENT);
+    }
+
+    /**
+     * The distance of a cell from the source in the current search
+     * @param cell the cell index
+     * @return the distance, or NOT_REACHED
+     */
+    protected int distance(int cell){
+        return visited[cell] == epoch ? distance[cell] : NOT_REACHED;
+    }
+
+    /**
+     * The cell a reached cell was reached from in the current search
+     * @param cell the cell index
+     * @return the parent cell index, or NO_PARENT for the source
+     */
+    protected int parent(int cell){
+        return parent[cell];
+    }
+
+    /**
+     * Marks a cell as reached in the current search
+     * @param cell the cell index
+     * @param cellDistance the distance from the source
+     * @param from the cell it was reached from
+     */
+    protected void reach(int cell, int cellDistance, int from){
+        visited[cell] = epoch;
+        distance[cell] = cellDistance;
+        parent[cell] = from;
+    }
+
+    /**
+     * Based on the current coordinate and the car orientation, the method
+     * dictates the first coordinates the car can reach, reaches them and
+     * writes their cell indices to cells.
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     * @param cells receives the initial cells, needs room for two
+     * @return the number of initial cells
+     */
+    protected int seedInitialCoordinates(Coordinate currentCoordinate,
+                                         WorldSpatial.Direction orientation,
+                                         int[] cells){
+        int x = currentCoordinate.x;
+        int y = currentCoordinate.y;
+        int count = 0;
+
+        /**
+         * Based on the orientation, the first coordinates a car can reach
+         * are either the one in front of it, the one behind it, or both.
+         */
+        if (orientation == WorldSpatial.Direction.EAST ||
+                orientation == WorldSpatial.Direction.WEST){
+            count = seed(x, y, x + 1, y, cells, count);
+            count = seed(x, y, x - 1, y, cells, count);
+        } else if (orientation == WorldSpatial.Direction.SOUTH ||
+                orientation == WorldSpatial.Direction.NORTH){
+            count = seed(x, y, x, y + 1, cells, count);
+            count = seed(x, y, x, y - 1, cells, count);
+        }
+
+        return count;
+    }
+
+    /**
+     * Reaches one of the initial coordinates should it be a valid coordinate
+     * that a car can pass through.
+     */
+    private int seed(int sourceX, int sourceY, int nextX, int nextY,
+                     int[] cells, int count){
+        if(!isPassable(nextX, nextY)) return count;
+
+        int width = route.getWidth();
+        int next = nextY * width + nextX;
+        reach(next, DISTANCE, sourceY * width + sourceX);
+        cells[count] = next;
+        return count + 1;
+    }
+
+    /**
+     * Whether the car may drive through a coordinate: it is within the map,
+     * not a wall, not a skipped dead end and, if it must avoid a trap, not a
+     * trap
+     */
+    protected boolean isPassable(int x, int y){
+        return route.isWithinMap(x, y) && !route.isBlocked(x, y) &&
+                !isSkipped(x, y) && (!avoidTrap || !route.toAvoid(x, y));
+    }
+
+    /**
+     * Whether the search leaves out a coordinate in a dead end
+     */
+    protected boolean isSkipped(int x, int y){
+        return skipDeadEnds && route.isDeadEnd(x, y);
+    }
+
+    /**
+     * The index i for which stepping by DIRECTIONS_DELTA from one cell leads
+     * to its neighbouring cell
+     */
+    protected static int directionIndex(int from, int to, int width){
+        int delta = to - from;
+        if (delta == 1) return 0;
+        if (delta == -width) return 1;
+        if (delta == -1) return 2;
+        return 3;
+    }
+
+    /**
+     * Converting the parents recorded by the search into a list of
+     * coordinates which represents a path
+     *
+     * @param startingCoordinate the source coordinate
+     * @param destination the destination
+     * @return the path, from the car's coordinate to the destination
+     */
+    protected List<Coordinate> backtrack(Coordinate startingCoordinate,
+                                         Coordinate destination){
+        int width = route.getWidth();
+        int source = startingCoordinate.y * width + startingCoordinate.x;
+
+        /**
+         * Counting the steps first, so the path can be filled in from the
+         * back
+         */
+        int destinationCell = destination.y * width + destination.x;
+        int length = 1;
+        for (int cell = destinationCell; cell != source; cell = parent[cell]) {
+            length++;
+        }
+        Coordinate[] path = new Coordinate[length];
+
+        /**
+         * Start to track the path from the destination, following the
+         * parents until the source coordinate is reached
+         */
+        int cell = destinationCell;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = new Coordinate(cell % width, cell / width);
+            cell = parent[cell];
+        }
+
+        return Arrays.asList(path);
+    }
+
+    /**
+     * Prints the distances of the last search.
+     */
+    protected void printDistArray(){
+        for (int i = route.getHeight() - 1; i >= 0; i--) {
+            for (int j = 0; j < route.getWidth(); j++) {
+                int y = distance(i * route.getWidth() + j);
+                if (y == NOT_REACHED){
+                    System.out.print("-- ");
+                } else{
+                    System.out.printf("%2d ", y);
+                }
+            }
+            System.out.printf("\n");
+        }
+        System.out.printf("\n");
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+import utilities.Coordinate;
+import world.WorldSpatial;
+
+import java.util.Arrays;
+
+/**
+ * The PathFinder that uses Breadth First Search from both ends. One search
+ * grows from the first coordinates the car can reach and the other from the
+ * destination, a whole level at a time, always the side with the smaller
+ * frontier, until no way between the two frontiers could be shorter than
+ * the best way found through the middle. Each side only covers about half
+ * the distance, so far fewer coordinates are processed on large open maps.
+ *
+ * The paths are as short as the ones found by Breadth First Search. Both
+ * sides drive through the same coordinates, so avoidTrap applies to both,
+ * and neither goes through the car's coordinate. Without a destination
+ * there is nothing to search back from, so every coordinate is searched
+ * from the car alone.
+ */
+public class BidirectionalSearchPathFinding
+        extends BreadthFirstSearchPathFinding{
+    /**
+     * The queues of both sides, holding cell indices. Every cell is enqueued
+     * at most once on each side.
+     */
+    private int[] forwardQueue;
+    private int[] backwardQueue;
+
+    /**
+     * Distances to the destination and the cell one step closer to it,
+     * valid when the stamp equals the current backward epoch
+     */
+    private int[] backwardDistance;
+    private int[] backwardParent;
+    private int[] backwardStamp;
+    private int backwardEpoch;
+
+    private int source;
+
+    /**
+     * The shortest path found so far through the middle: its length and the
+     * edge on it from a cell reached from the car to one reached from the
+     * destination
+     */
+    private int best;
+    private int meetForward;
+    private int meetBackward;
+
+    /**
+     * Instantiates a new bidirectional search path finding.
+     *
+     * @param route the route
+     */
+    public BidirectionalSearchPathFinding(Route route) {
+        super(route);
+        int cells = route.getHeight() * route.getWidth();
+        forwardQueue = new int[cells];
+        backwardQueue = new int[cells];
+        backwardDistance = new int[cells];
+        backwardParent = new int[cells];
+        backwardStamp = new int[cells];
+    }
+
+    /**
+     * Searches from the car and from the destination until the sides meet
+     * on a shortest path, then joins the destination's side onto the car's,
+     * so the path is backtracked as usual.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     * @param destination the destination
+     */
+    @Override
+    protected void search(Coordinate currentCoordinate,
+                          WorldSpatial.Direction orientation,
+                          Coordinate destination){
+        int target = cellOf(destination);
+        if (target == NO_PARENT) {
+            super.search(currentCoordinate, orientation, destination);
+            return;
+        }
+
+        int width = route.getWidth();
+        source = cellOf(currentCoordinate);
+        startSearch(source);
+
+        /**
+         * A car must move one coordinate forward or backward at first, so
+         * the car's side starts from those coordinates
+         */
+        int forwardTail = seedInitialCoordinates(currentCoordinate,
+                orientation, forwardQueue);
+        int forwardHead = 0;
+        int forwardLevel = DISTANCE;
+
+        if (distance(target) != NOT_REACHED) return;
+        if (!isPassable(target % width, target / width)) return;
+
+        startBackward(target);
+        int backwardHead = 0;
+        int backwardTail = 1;
+        int backwardLevel = 0;
+        best = NOT_REACHED;
+
+        /**
+         * Any path not found yet has to step from one frontier to the other
+         */
+        while (forwardHead < forwardTail && backwardHead < backwardTail &&
+                best > forwardLevel + backwardLevel + DISTANCE) {
+            if (forwardTail - forwardHead <= backwardTail - backwardHead) {
+                int levelEnd = forwardTail;
+                forwardTail = expandForward(forwardHead, forwardTail);
+                forwardHead = levelEnd;
+                forwardLevel += DISTANCE;
+            } else {
+                int levelEnd = backwardTail;
+                backwardTail = expandBackward(backwardHead, backwardTail);
+                backwardHead = levelEnd;
+                backwardLevel += DISTANCE;
+            }
+        }
+
+        if (best != NOT_REACHED) join();
+    }
+
+    /**
+     * Expands one level of the car's side, putting the next level on the
+     * queue after it.
+     *
+     * @param head the first cell of the level on the queue
+     * @param tail the end of the level on the queue
+     * @return the end of the next level
+     */
+    private int expandForward(int head, int tail){
+        int width = route.getWidth();
+        int end = tail;
+        for (int i = head; i < end; i++) {
+            int cell = forwardQueue[i];
+            int cellX = cell % width;
+            int cellY = cell / width;
+            int nextDistance = distance(cell) + DISTANCE;
+
+            for (int d = 0; d < NUM_OF_POSSIBLE_DIRECTION; d++) {
+                int nextX = cellX + DIRECTIONS_DELTA[d];
+                int nextY = cellY +
+                        DIRECTIONS_DELTA[(d+1)%NUM_OF_POSSIBLE_DIRECTION];
+
+                if (!isPassable(nextX, nextY)) continue;
+                int next = nextY * width + nextX;
+
+                /**
+                 * Stepping onto the destination's side is a way through
+                 */
+                if (backwardStamp[next] == backwardEpoch) {
+                    meet(cell, next, nextDistance + backwardDistance[next]);
+                }
+
+                if (distance(next) == NOT_REACHED) {
+                    reach(next, nextDistance, cell);
+                    forwardQueue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Expands one level of the destination's side, putting the next level
+     * on the queue after it. The car's coordinate is never stepped onto.
+     *
+     * @param head the first cell of the level on the queue
+     * @param tail the end of the level on the queue
+     * @return the end of the next level
+     */
+    private int expandBackward(int head, int tail){
+        int width = route.getWidth();
+        int end = tail;
+        for (int i = head; i < end; i++) {
+            int cell = backwardQueue[i];
+            int cellX = cell % width;
+            int cellY = cell / width;
+            int nextDistance = backwardDistance[cell] + DISTANCE;
+
+            for (int d = 0; d < NUM_OF_POSSIBLE_DIRECTION; d++) {
+                int nextX = cellX + DIRECTIONS_DELTA[d];
+                int nextY = cellY +
+                        DIRECTIONS_DELTA[(d+1)%NUM_OF_POSSIBLE_DIRECTION];
+
+                if (!isPassable(nextX, nextY)) continue;
+                int next = nextY * width + nextX;
+                if (next == source) continue;
+
+                /**
+                 * Stepping onto the car's side is a way through
+                 */
+                int reached = distance(next);
+                if (reached != NOT_REACHED) {
+                    meet(next, cell, reached + nextDistance);
+                }
+
+                if (backwardStamp[next] != backwardEpoch) {
+                    backwardStamp[next] = backwardEpoch;
+                    backwardDistance[next] = nextDistance;
+                    backwardParent[next] = cell;
+                    backwardQueue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Starts a new generation of the destination's side from the
+     * destination.
+     */
+    private void startBackward(int target){
+        backwardEpoch++;
+        if (backwardEpoch == Integer.MAX_VALUE) {
+            Arrays.fill(backwardStamp, 0);
+            backwardEpoch = 1;
+        }
+        backwardStamp[target] = backwardEpoch;
+        backwardDistance[target] = 0;
+        backwardParent[target] = NO_PARENT;
+        backwardQueue[0] = target;
+    }
+
+    /**
+     * Keeps the way through an edge between the two sides should it be the
+     * shortest so far.
+     */
+    private void meet(int forwardCell, int backwardCell, int length){
+        if (length < best) {
+            best = length;
+            meetForward = forwardCell;
+            meetBackward = backwardCell;
+        }
+    }
+
+    /**
+     * Reaches the cells of the destination's side along the shortest way
+     * found, as if the car's side had found them, up to the destination.
+     */
+    private void join(){
+        int from = meetForward;
+        int cellDistance = distance(from);
+        for (int cell = meetBackward; cell != NO_PARENT;
+             cell = backwardParent[cell]) {
+            cellDistance += DISTANCE;
+            reach(cell, cellDistance, from);
+            from = cell;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import java.util.Arrays;
+
+/**
+ * A monotone priority queue of cells for small integer costs (Dial's
+ * buckets). Every push must have a priority between the last one polled and
+ * that plus the largest step cost, so one circular bucket per possible step
+ * cost is enough and pushing and polling take constant time apart from
+ * skipping empty buckets. A cell may be pushed more than once; the searches
+ * skip the stale entries.
+ */
+public class BucketQueue {
+    private static final int NONE = -1;
+
+    /**
+     * The first entry of each circular bucket
+     */
+    private int[] heads = new int[0];
+
+    /**
+     * The pool of entries, each a cell and the next entry in its bucket
+     */
+    private int[] cells;
+    private int[] next;
+    private int entries;
+
+    private int size;
+    private int current;
+
+    /**
+     * Instantiates a new bucket queue.
+     *
+     * @param capacity the initial number of entries
+     */
+    public BucketQueue(int capacity) {
+        cells = new int[Math.max(capacity, 16)];
+        next = new int[cells.length];
+    }
+
+    /**
+     * Empties the queue for a new search.
+     *
+     * @param maxStepCost the largest cost of one step in the search
+     */
+    public void reset(int maxStepCost) {
+        if (heads.length < maxStepCost + 1) {
+            heads = new int[maxStepCost + 1];
+        }
+        Arrays.fill(heads, NONE);
+        entries = 0;
+        size = 0;
+        current = 0;
+    }
+
+    /**
+     * Whether the queue is empty.
+     *
+     * @return true if there are no entries
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a cell with a priority.
+     *
+     * @param priority the priority, at least the last polled priority
+     * @param cell the cell index
+     */
+    public void push(int priority, int cell) {
+        if (entries == cells.length) {
+            cells = Arrays.copyOf(cells, entries * 2);
+            next = Arrays.copyOf(next, entries * 2);
+        }
+        int bucket = priority % heads.length;
+        cells[entries] = cell;
+        next[entries] = heads[bucket];
+        heads[bucket] = entries++;
+        size++;
+    }
+
+    /**
+     * Removes a cell with the smallest priority, the queue must not be
+     * empty.
+     *
+     * @return the cell
+     */
+    public int poll() {
+        while (heads[current % heads.length] == NONE) {
+            current++;
+        }
+        int bucket = current % heads.length;
+        int entry = heads[bucket];
+        heads[bucket] = next[entry];
+        size--;
+        return cells[entry];
+    }
+
+    /**
+     * The priority of the cell last polled.
+     *
+     * @return the priority
+     */
+    public int lastPriority() {
+        return current;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of cell indices ordered by a long priority, kept in
+ * primitive arrays so the searches can reuse it without boxing. A cell may
+ * be pushed more than once; the searches skip the stale entries.
+ */
+public class CellPriorityQueue {
+    private long[] priorities;
+    private int[] cells;
+    private int size;
+
+    /**
+     * Instantiates a new cell priority queue.
+     *
+     * @param capacity the initial capacity
+     */
+    public CellPriorityQueue(int capacity) {
+        priorities = new long[Math.max(capacity, 16)];
+        cells = new int[priorities.length];
+    }
+
+    /**
+     * Whether the queue is empty.
+     *
+     * @return true if there are no entries
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a cell with a priority.
+     *
+     * @param priority the priority, smallest first
+     * @param cell the cell index
+     */
+    public void push(long priority, int cell) {
+        if (size == priorities.length) {
+            priorities = Arrays.copyOf(priorities, size * 2);
+            cells = Arrays.copyOf(cells, size * 2);
+        }
+
+        /**
+         * Sift up from the new leaf
+         */
+        int i = size++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (priorities[up] <= priority) break;
+            priorities[i] = priorities[up];
+            cells[i] = cells[up];
+            i = up;
+        }
+        priorities[i] = priority;
+        cells[i] = cell;
+    }
+
+    /**
+     * The smallest priority, the queue must not be empty.
+     *
+     * @return the priority of the head
+     */
+    public long peekPriority() {
+        return priorities[0];
+    }
+
+    /**
+     * The cell with the smallest priority, the queue must not be empty.
+     *
+     * @return the cell of the head
+     */
+    public int peekCell() {
+        return cells[0];
+    }
+
+    /**
+     * Removes the head and returns its cell.
+     *
+     * @return the cell with the smallest priority
+     */
+    public int poll() {
+        int head = cells[0];
+        size--;
+        long priority = priorities[size];
+        int cell = cells[size];
+
+        /**
+         * Sift the last leaf down from the root
+         */
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                child++;
+            }
+            if (priorities[child] >= priority) break;
+            priorities[i] = priorities[child];
+            cells[i] = cells[child];
+            i = child;
+        }
+        priorities[i] = priority;
+        cells[i] = cell;
+        return head;
+    }
+}
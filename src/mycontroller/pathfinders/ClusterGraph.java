@@ -0,0 +1,434 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+
+import java.util.Arrays;
+
+/**
+ * The abstract graph of a Route for hierarchical path finding. The map is
+ * split into square clusters. Wherever the border between two clusters can
+ * be crossed, one or two pairs of coordinates facing each other across it
+ * are picked as transitions, and the distances between the transitions of
+ * each cluster, going through that cluster only, are kept.
+ *
+ * The graph follows Route's change log: a change only invalidates the
+ * cluster it is in and the borders it lies on, which are rebuilt the next
+ * time the graph is refreshed.
+ */
+public class ClusterGraph {
+    /**
+     * The distance between two transitions that cannot reach each other
+     * inside their cluster
+     */
+    public static final int NOT_CONNECTED = Integer.MAX_VALUE;
+
+    /**
+     * Openings along a border at least this wide get a transition at each
+     * end instead of one in the middle
+     */
+    private static final int WIDE_ENTRANCE = 6;
+
+    private Route route;
+    private boolean avoidTrap;
+    private int clusterSize;
+    private int clustersWide;
+    private int clustersHigh;
+
+    /**
+     * The transitions of every cluster as cell indices, and the distances
+     * between them, row by row
+     */
+    private int[][] transitions;
+    private int[][] distances;
+
+    /**
+     * The transitions on the border with the cluster to the east and the
+     * one to the north, the first half on this side and the second half
+     * facing them on the other
+     */
+    private int[][] eastBorder;
+    private int[][] northBorder;
+
+    private boolean[] clusterDirty;
+    private boolean[] eastDirty;
+    private boolean[] northDirty;
+
+    /**
+     * How many borders each cell is a transition on
+     */
+    private byte[] transitionCount;
+
+    /**
+     * How much of Route's change log has been applied
+     */
+    private int changesRead;
+
+    /**
+     * Scratch space for the searches inside a cluster
+     */
+    private int[] localDistance;
+    private int[] localQueue;
+    private int[] localStamp;
+    private int localEpoch;
+
+    /**
+     * Instantiates a new cluster graph. Nothing is built until the first
+     * refresh.
+     *
+     * @param route       the route
+     * @param clusterSize the width and height of a cluster
+     * @param avoidTrap   whether the coordinates to avoid count as blocked
+     */
+    public ClusterGraph(Route route, int clusterSize, boolean avoidTrap) {
+        this.route = route;
+        this.clusterSize = clusterSize;
+        this.avoidTrap = avoidTrap;
+        clustersWide = (route.getWidth() + clusterSize - 1) / clusterSize;
+        clustersHigh = (route.getHeight() + clusterSize - 1) / clusterSize;
+
+        int clusters = clustersWide * clustersHigh;
+        transitions = new int[clusters][0];
+        distances = new int[clusters][0];
+        eastBorder = new int[clusters][0];
+        northBorder = new int[clusters][0];
+        clusterDirty = new boolean[clusters];
+        eastDirty = new boolean[clusters];
+        northDirty = new boolean[clusters];
+        Arrays.fill(clusterDirty, true);
+        Arrays.fill(eastDirty, true);
+        Arrays.fill(northDirty, true);
+        transitionCount = new byte[route.getWidth() * route.getHeight()];
+
+        int cells = clusterSize * clusterSize;
+        localDistance = new int[cells];
+        localQueue = new int[cells];
+        localStamp = new int[cells];
+        changesRead = route.getChangeCount();
+    }
+
+    /**
+     * Applies the changes logged by the Route since the last refresh and
+     * rebuilds what they invalidated.
+     */
+    public void refresh() {
+        int count = route.getChangeCount();
+        for (int i = changesRead; i < count; i++) {
+            invalidate(route.getChangedX(i), route.getChangedY(i));
+        }
+        changesRead = count;
+
+        for (int cluster = 0; cluster < eastDirty.length; cluster++) {
+            if (eastDirty[cluster]) buildEastBorder(cluster);
+            if (northDirty[cluster]) buildNorthBorder(cluster);
+        }
+        for (int cluster = 0; cluster < clusterDirty.length; cluster++) {
+            if (clusterDirty[cluster]) buildCluster(cluster);
+        }
+    }
+
+    /**
+     * Gets the cluster size.
+     *
+     * @return the width and height of a cluster
+     */
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * Gets the number of clusters.
+     *
+     * @return the number of clusters
+     */
+    public int getClusterCount() {
+        return transitions.length;
+    }
+
+    /**
+     * The cluster a coordinate is in.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the cluster index
+     */
+    public int clusterOf(int x, int y) {
+        return (y / clusterSize) * clustersWide + x / clusterSize;
+    }
+
+    /**
+     * The transitions of a cluster.
+     *
+     * @param cluster the cluster index
+     * @return the cell indices of the transitions, not to be modified
+     */
+    public int[] getTransitions(int cluster) {
+        return transitions[cluster];
+    }
+
+    /**
+     * The distance between two transitions of a cluster, going through the
+     * cluster only.
+     *
+     * @param cluster the cluster index
+     * @param from    the position of one transition in getTransitions
+     * @param to      the position of the other
+     * @return the distance, or NOT_CONNECTED
+     */
+    public int getDistance(int cluster, int from, int to) {
+        return distances[cluster][from * transitions[cluster].length + to];
+    }
+
+    /**
+     * Whether a cell is a transition, where the search may cross into
+     * another cluster.
+     *
+     * @param cell the cell index
+     * @return true if it is a transition
+     */
+    public boolean isTransition(int cell) {
+        return transitionCount[cell] > 0;
+    }
+
+    /**
+     * Whether the car may drive through a coordinate, as the graph sees it.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if it can be driven through
+     */
+    public boolean isPassable(int x, int y) {
+        return route.isWithinMap(x, y) && !route.isBlocked(x, y) &&
+                (!avoidTrap || !route.toAvoid(x, y));
+    }
+
+    /**
+     * Whether a coordinate is in a cluster.
+     *
+     * @param cluster the cluster index
+     * @param x       the x coordinate
+     * @param y       the y coordinate
+     * @return true if it is in the cluster
+     */
+    public boolean isInCluster(int cluster, int x, int y) {
+        return route.isWithinMap(x, y) && clusterOf(x, y) == cluster;
+    }
+
+    /**
+     * Marks what a change to a coordinate invalidates: its cluster, and the
+     * borders it lies on together with the clusters across them.
+     */
+    private void invalidate(int x, int y) {
+        int cluster = clusterOf(x, y);
+        clusterDirty[cluster] = true;
+
+        int column = x % clusterSize;
+        int row = y % clusterSize;
+        if (column == 0 && x > 0) eastDirty[cluster - 1] = true;
+        if (column == clusterSize - 1 && x + 1 < route.getWidth()) {
+            eastDirty[cluster] = true;
+        }
+        if (row == 0 && y > 0) northDirty[cluster - clustersWide] = true;
+        if (row == clusterSize - 1 && y + 1 < route.getHeight()) {
+            northDirty[cluster] = true;
+        }
+    }
+
+    private void buildEastBorder(int cluster) {
+        eastDirty[cluster] = false;
+        int clusterX = cluster % clustersWide;
+        if (clusterX + 1 >= clustersWide) return;
+
+        int x = (clusterX + 1) * clusterSize - 1;
+        int fromY = (cluster / clustersWide) * clusterSize;
+        int toY = Math.min(fromY + clusterSize, route.getHeight());
+        eastBorder[cluster] = replaceBorder(eastBorder[cluster],
+                buildBorder(x, fromY, 0, 1, toY - fromY, 1, 0));
+        clusterDirty[cluster] = true;
+        clusterDirty[cluster + 1] = true;
+    }
+
+    private void buildNorthBorder(int cluster) {
+        northDirty[cluster] = false;
+        int clusterY = cluster / clustersWide;
+        if (clusterY + 1 >= clustersHigh) return;
+
+        int y = (clusterY + 1) * clusterSize - 1;
+        int fromX = (cluster % clustersWide) * clusterSize;
+        int toX = Math.min(fromX + clusterSize, route.getWidth());
+        northBorder[cluster] = replaceBorder(northBorder[cluster],
+                buildBorder(fromX, y, 1, 0, toX - fromX, 0, 1));
+        clusterDirty[cluster] = true;
+        clusterDirty[cluster + clustersWide] = true;
+    }
+
+    /**
+     * Finds the transitions along one border, walking along it from the
+     * first coordinate on this side, with the other side one step across.
+     *
+     * @return the transitions on this side followed by the ones facing them
+     */
+    private int[] buildBorder(int x, int y, int alongX, int alongY,
+                              int length, int acrossX, int acrossY) {
+        int width = route.getWidth();
+        int[] found = new int[2 * length];
+        int count = 0;
+
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            int sideX = x + i * alongX;
+            int sideY = y + i * alongY;
+            boolean open = i < length && isPassable(sideX, sideY) &&
+                    isPassable(sideX + acrossX, sideY + acrossY);
+            if (open && start < 0) start = i;
+            if (open || start < 0) continue;
+
+            /**
+             * The end of an opening, narrow ones get a transition in the
+             * middle and wide ones one at each end
+             */
+            int end = i - 1;
+            if (end - start + 1 < WIDE_ENTRANCE) {
+                found[count++] = (start + end) / 2;
+            } else {
+                found[count++] = start;
+                found[count++] = end;
+            }
+            start = -1;
+        }
+
+        int[] border = new int[2 * count];
+        for (int i = 0; i < count; i++) {
+            int sideX = x + found[i] * alongX;
+            int sideY = y + found[i] * alongY;
+            border[i] = sideY * width + sideX;
+            border[count + i] = (sideY + acrossY) * width + sideX + acrossX;
+        }
+        return border;
+    }
+
+    /**
+     * Swaps the transitions of a border, keeping the transition counts of
+     * the cells up to date
+     */
+    private int[] replaceBorder(int[] oldBorder, int[] newBorder) {
+        for (int cell : oldBorder) transitionCount[cell]--;
+        for (int cell : newBorder) transitionCount[cell]++;
+        return newBorder;
+    }
+
+    /**
+     * Collects the transitions of a cluster from its four borders and works
+     * out the distances between them.
+     */
+    private void buildCluster(int cluster) {
+        clusterDirty[cluster] = false;
+        int clusterX = cluster % clustersWide;
+        int clusterY = cluster / clustersWide;
+
+        /**
+         * This cluster's half of each border, a corner cell may be on two
+         * borders but is kept once
+         */
+        int[] cells = new int[0];
+        cells = addSide(cells, eastBorder[cluster], true);
+        cells = addSide(cells, northBorder[cluster], true);
+        if (clusterX > 0) {
+            cells = addSide(cells, eastBorder[cluster - 1], false);
+        }
+        if (clusterY > 0) {
+            cells = addSide(cells, northBorder[cluster - clustersWide], false);
+        }
+        transitions[cluster] = cells;
+
+        int count = cells.length;
+        int[] clusterDistances = new int[count * count];
+        for (int i = 0; i < count; i++) {
+            searchCluster(cluster, cells[i]);
+            for (int j = 0; j < count; j++) {
+                clusterDistances[i * count + j] = localDistance(cells[j]);
+            }
+        }
+        distances[cluster] = clusterDistances;
+    }
+
+    private static int[] addSide(int[] cells, int[] border, boolean nearSide) {
+        int half = border.length / 2;
+        int from = nearSide ? 0 : half;
+        int[] added = Arrays.copyOf(cells, cells.length + half);
+        int count = cells.length;
+        for (int i = from; i < from + half; i++) {
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = added[j] == border[i];
+            }
+            if (!seen) added[count++] = border[i];
+        }
+        return Arrays.copyOf(added, count);
+    }
+
+    /**
+     * Breadth first search from a cell that never leaves its cluster, the
+     * results are read with localDistance.
+     */
+    private void searchCluster(int cluster, int source) {
+        localEpoch++;
+        if (localEpoch == Integer.MAX_VALUE) {
+            Arrays.fill(localStamp, 0);
+            localEpoch = 1;
+        }
+
+        int width = route.getWidth();
+        int head = 0;
+        int tail = 0;
+        localQueue[tail++] = source;
+        setLocalDistance(source, 0);
+
+        while (head < tail) {
+            int cell = localQueue[head++];
+            int x = cell % width;
+            int y = cell / width;
+            int nextDistance = localDistance(cell) + PathFinder.DISTANCE;
+
+            for (int i = 0; i < PathFinder.NUM_OF_POSSIBLE_DIRECTION; i++) {
+                int nextX = x + PathFinder.DIRECTIONS_DELTA[i];
+                int nextY = y + PathFinder.DIRECTIONS_DELTA
+                        [(i+1)%PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+                if (!isInCluster(cluster, nextX, nextY) ||
+                        !isPassable(nextX, nextY)) continue;
+
+                int next = nextY * width + nextX;
+                if (localDistance(next) == NOT_CONNECTED) {
+                    setLocalDistance(next, nextDistance);
+                    localQueue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * The distance of a cell found by the last search inside a cluster
+     */
+    private int localDistance(int cell) {
+        int local = localIndex(cell);
+        return localStamp[local] == localEpoch ? localDistance[local] :
+                NOT_CONNECTED;
+    }
+
+    private void setLocalDistance(int cell, int distance) {
+        int local = localIndex(cell);
+        localStamp[local] = localEpoch;
+        localDistance[local] = distance;
+    }
+
+    /**
+     * The position of a cell within its cluster
+     */
+    private int localIndex(int cell) {
+        int width = route.getWidth();
+        return (cell / width % clusterSize) * clusterSize +
+                cell % width % clusterSize;
+    }
+}
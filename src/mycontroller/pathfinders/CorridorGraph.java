@@ -0,0 +1,552 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+
+import java.util.Arrays;
+
+/**
+ * The road layout of a Route collapsed into junctions joined by corridors.
+ * A junction is a coordinate that is not blocked and does not have exactly
+ * two neighbours that are not blocked: a crossing, a dead end or a
+ * coordinate in an open area. The coordinates with exactly two are strung
+ * into corridors between two junctions. Every corridor keeps its
+ * coordinates in order, its length, the costs of the traps on it, how often
+ * it turns and whether it turns on a coordinate the car cannot turn on.
+ *
+ * A loop of corridor coordinates with no junction on it gets one of its
+ * coordinates made a junction, so every coordinate that is not blocked is a
+ * junction or in exactly one corridor.
+ *
+ * The graph follows Route's change log. A change only rebuilds the
+ * corridors through the coordinate and its neighbours, the next time the
+ * graph is refreshed.
+ */
+public class CorridorGraph {
+    /**
+     * No corridor, for coordinates that are junctions or blocked and for
+     * directions a junction cannot be left in
+     */
+    public static final int NONE = -1;
+
+    /**
+     * With more changes than one for every this many coordinates since the
+     * last refresh, the whole graph is built again instead
+     */
+    private static final int REBUILD_RATIO = 8;
+
+    private Route route;
+    private int width;
+    private int height;
+
+    /**
+     * The corridor each coordinate is in and its position among the
+     * coordinates of the corridor, or NONE
+     */
+    private int[] corridorOf;
+    private int[] positionOf;
+
+    /**
+     * Whether each coordinate is a junction, and whether it was made one to
+     * break a loop
+     */
+    private boolean[] junction;
+    private boolean[] forced;
+
+    /**
+     * The corridor leaving each junction in each direction, four to a
+     * coordinate in the order of PathFinder.DIRECTIONS_DELTA
+     */
+    private int[] leaving;
+
+    /**
+     * The corridors: the coordinates between their two junctions, from the
+     * first junction to the last, the junctions, the directions they are
+     * left in, the trap costs of the coordinates between them, the turns
+     * and whether a turn is on a coordinate the car cannot turn on
+     */
+    private int[][] cells;
+    private int[] first;
+    private int[] last;
+    private int[] firstDirection;
+    private int[] lastDirection;
+    private int[] trapCost;
+    private int[] turns;
+    private boolean[] turnBlocked;
+    private int corridorCount;
+
+    /**
+     * The number of coordinates in corridors, the ones a search skips, and
+     * the number of junctions
+     */
+    private int corridorCells;
+    private int junctionCount;
+
+    /**
+     * The most coordinates any corridor has had between its junctions
+     */
+    private int longest;
+
+    /**
+     * The corridors removed, to be used again
+     */
+    private int[] free = new int[16];
+    private int freeCount;
+
+    /**
+     * How much of Route's change log has been applied
+     */
+    private int changesRead;
+
+    /**
+     * Scratch space for a refresh: the junctions to leave again and the
+     * coordinates of removed corridors that may be left out
+     */
+    private int[] pending = new int[64];
+    private int pendingCount;
+    private int[] orphans = new int[64];
+    private int orphanCount;
+    private int[] walk = new int[64];
+
+    /**
+     * Instantiates a new corridor graph and builds it.
+     *
+     * @param route the route
+     */
+    public CorridorGraph(Route route) {
+        this.route = route;
+        width = route.getWidth();
+        height = route.getHeight();
+        int size = width * height;
+        corridorOf = new int[size];
+        positionOf = new int[size];
+        junction = new boolean[size];
+        forced = new boolean[size];
+        leaving = new int[size * PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+
+        int capacity = 16;
+        cells = new int[capacity][];
+        first = new int[capacity];
+        last = new int[capacity];
+        firstDirection = new int[capacity];
+        lastDirection = new int[capacity];
+        trapCost = new int[capacity];
+        turns = new int[capacity];
+        turnBlocked = new boolean[capacity];
+        build();
+    }
+
+    /**
+     * Applies the changes logged by the Route since the last refresh,
+     * rebuilding the corridors they touch.
+     */
+    public void refresh() {
+        int count = route.getChangeCount();
+        if (count == changesRead) return;
+        if ((count - changesRead) * REBUILD_RATIO > width * height) {
+            build();
+            return;
+        }
+
+        pendingCount = 0;
+        orphanCount = 0;
+        for (int i = changesRead; i < count; i++) {
+            int x = route.getChangedX(i);
+            int y = route.getChangedY(i);
+            detach(x, y);
+            for (int d = 0; d < PathFinder.NUM_OF_POSSIBLE_DIRECTION; d++) {
+                detach(x + dx(d), y + dy(d));
+            }
+        }
+        changesRead = count;
+
+        for (int i = 0; i < pendingCount; i++) leaveJunction(pending[i]);
+        for (int i = 0; i < orphanCount; i++) {
+            int cell = orphans[i];
+            if (isOpen(cell) && !junction[cell] && corridorOf[cell] == NONE) {
+                forced[cell] = true;
+                setJunction(cell, true);
+                leaveJunction(cell);
+            }
+        }
+    }
+
+    /**
+     * Whether a coordinate is a junction.
+     *
+     * @param cell the cell index
+     * @return true if it is a junction
+     */
+    public boolean isJunction(int cell) {
+        return junction[cell];
+    }
+
+    /**
+     * The corridor leaving a junction in a direction.
+     *
+     * @param cell the cell index of the junction
+     * @param direction the direction, an index of PathFinder.DIRECTIONS_DELTA
+     * @return the corridor, or NONE
+     */
+    public int getLeaving(int cell, int direction) {
+        return leaving[cell * PathFinder.NUM_OF_POSSIBLE_DIRECTION +
+                direction];
+    }
+
+    /**
+     * The corridor a coordinate is in.
+     *
+     * @param cell the cell index
+     * @return the corridor, or NONE for junctions and blocked coordinates
+     */
+    public int corridorOf(int cell) {
+        return corridorOf[cell];
+    }
+
+    /**
+     * The position of a coordinate among the coordinates of its corridor.
+     *
+     * @param cell the cell index, in a corridor
+     * @return the position, from the first junction
+     */
+    public int positionOf(int cell) {
+        return positionOf[cell];
+    }
+
+    /**
+     * The coordinates between the junctions of a corridor.
+     *
+     * @param corridor the corridor
+     * @return the cell indices from the first junction to the last, not to
+     * be modified
+     */
+    public int[] getCells(int corridor) {
+        return cells[corridor];
+    }
+
+    /**
+     * The junction a corridor starts from.
+     *
+     * @param corridor the corridor
+     * @return the cell index of the junction
+     */
+    public int getFirst(int corridor) {
+        return first[corridor];
+    }
+
+    /**
+     * The junction a corridor ends at.
+     *
+     * @param corridor the corridor
+     * @return the cell index of the junction
+     */
+    public int getLast(int corridor) {
+        return last[corridor];
+    }
+
+    /**
+     * The direction the first junction of a corridor is left in.
+     *
+     * @param corridor the corridor
+     * @return an index of PathFinder.DIRECTIONS_DELTA
+     */
+    public int getFirstDirection(int corridor) {
+        return firstDirection[corridor];
+    }
+
+    /**
+     * The number of steps between the junctions of a corridor.
+     *
+     * @param corridor the corridor
+     * @return the length
+     */
+    public int getLength(int corridor) {
+        return (cells[corridor].length + 1) * PathFinder.DISTANCE;
+    }
+
+    /**
+     * The trap costs of the coordinates between the junctions of a
+     * corridor, added up.
+     *
+     * @param corridor the corridor
+     * @return the trap cost
+     */
+    public int getTrapCost(int corridor) {
+        return trapCost[corridor];
+    }
+
+    /**
+     * How often a corridor turns between its junctions.
+     *
+     * @param corridor the corridor
+     * @return the number of turns
+     */
+    public int getTurns(int corridor) {
+        return turns[corridor];
+    }
+
+    /**
+     * Whether a corridor turns on a coordinate the car cannot turn on, so it
+     * cannot be driven through from one junction to the other.
+     *
+     * @param corridor the corridor
+     * @return true if it cannot be driven through
+     */
+    public boolean isTurnBlocked(int corridor) {
+        return turnBlocked[corridor];
+    }
+
+    /**
+     * The most coordinates any corridor has had between its junctions, no
+     * fewer than any corridor has now.
+     *
+     * @return the number of coordinates
+     */
+    public int getLongest() {
+        return longest;
+    }
+
+    /**
+     * The number of corridors.
+     *
+     * @return the number of corridors
+     */
+    public int getCorridorCount() {
+        return corridorCount - freeCount;
+    }
+
+    /**
+     * The number of coordinates in corridors, which are not junctions.
+     *
+     * @return the number of coordinates
+     */
+    public int getCorridorCells() {
+        return corridorCells;
+    }
+
+    /**
+     * The number of junctions.
+     *
+     * @return the number of junctions
+     */
+    public int getJunctionCount() {
+        return junctionCount;
+    }
+
+    /**
+     * Builds the whole graph from the Route.
+     */
+    private void build() {
+        Arrays.fill(corridorOf, NONE);
+        Arrays.fill(leaving, NONE);
+        Arrays.fill(forced, false);
+        Arrays.fill(junction, false);
+        corridorCount = 0;
+        corridorCells = 0;
+        junctionCount = 0;
+        freeCount = 0;
+        changesRead = route.getChangeCount();
+
+        for (int cell = 0; cell < junction.length; cell++) {
+            setJunction(cell, isOpen(cell) && openNeighbours(cell) != 2);
+        }
+        for (int cell = 0; cell < junction.length; cell++) {
+            if (junction[cell]) leaveJunction(cell);
+        }
+
+        /**
+         * What is left are loops without a junction
+         */
+        for (int cell = 0; cell < junction.length; cell++) {
+            if (isOpen(cell) && !junction[cell] && corridorOf[cell] == NONE) {
+                forced[cell] = true;
+                setJunction(cell, true);
+                leaveJunction(cell);
+            }
+        }
+    }
+
+    /**
+     * Removes the corridors through a coordinate that changed or is next to
+     * one, and works out again whether it is a junction. The junctions the
+     * corridors ended at are left again later, and their coordinates looked
+     * at again should no junction lead to them any more.
+     */
+    private void detach(int x, int y) {
+        if (!route.isWithinMap(x, y)) return;
+        int cell = y * width + x;
+
+        if (corridorOf[cell] != NONE) removeCorridor(corridorOf[cell]);
+        if (junction[cell]) {
+            for (int d = 0; d < PathFinder.NUM_OF_POSSIBLE_DIRECTION; d++) {
+                int corridor = getLeaving(cell, d);
+                if (corridor != NONE) removeCorridor(corridor);
+            }
+        }
+
+        boolean open = isOpen(cell);
+        if (!open) forced[cell] = false;
+        setJunction(cell, open && (forced[cell] || openNeighbours(cell) != 2));
+        if (junction[cell]) {
+            pending = push(pending, pendingCount++, cell);
+        } else if (open) {
+            orphans = push(orphans, orphanCount++, cell);
+        }
+    }
+
+    private void removeCorridor(int corridor) {
+        for (int cell : cells[corridor]) {
+            corridorOf[cell] = NONE;
+            orphans = push(orphans, orphanCount++, cell);
+        }
+        int leftFirst = first[corridor] * PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+        int leftLast = last[corridor] * PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+        if (leaving[leftFirst + firstDirection[corridor]] == corridor) {
+            leaving[leftFirst + firstDirection[corridor]] = NONE;
+        }
+        if (leaving[leftLast + lastDirection[corridor]] == corridor) {
+            leaving[leftLast + lastDirection[corridor]] = NONE;
+        }
+        pending = push(pending, pendingCount++, first[corridor]);
+        pending = push(pending, pendingCount++, last[corridor]);
+
+        corridorCells -= cells[corridor].length;
+        cells[corridor] = null;
+        free = push(free, freeCount++, corridor);
+    }
+
+    /**
+     * Follows every corridor leaving a junction that is not in the graph
+     * yet.
+     */
+    private void leaveJunction(int cell) {
+        if (!junction[cell]) return;
+        int x = cell % width;
+        int y = cell / width;
+        for (int d = 0; d < PathFinder.NUM_OF_POSSIBLE_DIRECTION; d++) {
+            if (getLeaving(cell, d) != NONE) continue;
+            if (!isOpen(x + dx(d), y + dy(d))) continue;
+            follow(cell, d);
+        }
+    }
+
+    /**
+     * Follows a corridor from a junction to the next and adds it.
+     *
+     * @param start the cell index of the junction
+     * @param direction the direction the junction is left in
+     */
+    private void follow(int start, int direction) {
+        int count = 0;
+        int trapCosts = 0;
+        int turnCount = 0;
+        boolean blocked = false;
+
+        int x = start % width + dx(direction);
+        int y = start / width + dy(direction);
+        int heading = direction;
+        while (!junction[y * width + x]) {
+            int cell = y * width + x;
+            walk = push(walk, count++, cell);
+            trapCosts += route.getTrapCost(x, y);
+
+            /**
+             * The way on is the neighbour that is not the way back
+             */
+            int next = heading;
+            for (int d = 0; d < PathFinder.NUM_OF_POSSIBLE_DIRECTION; d++) {
+                if (d != (heading + 2) % PathFinder.NUM_OF_POSSIBLE_DIRECTION
+                        && isOpen(x + dx(d), y + dy(d))) {
+                    next = d;
+                    break;
+                }
+            }
+            if (next != heading) {
+                turnCount++;
+                if (!route.canTurn(x, y)) blocked = true;
+            }
+            heading = next;
+            x += dx(heading);
+            y += dy(heading);
+        }
+
+        int corridor = freeCount > 0 ? free[--freeCount] : newCorridor();
+        cells[corridor] = Arrays.copyOf(walk, count);
+        corridorCells += count;
+        longest = Math.max(longest, count);
+        first[corridor] = start;
+        last[corridor] = y * width + x;
+        firstDirection[corridor] = direction;
+        lastDirection[corridor] =
+                (heading + 2) % PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+        trapCost[corridor] = trapCosts;
+        turns[corridor] = turnCount;
+        turnBlocked[corridor] = blocked;
+
+        for (int i = 0; i < count; i++) {
+            corridorOf[walk[i]] = corridor;
+            positionOf[walk[i]] = i;
+        }
+        leaving[start * PathFinder.NUM_OF_POSSIBLE_DIRECTION + direction] =
+                corridor;
+        leaving[last[corridor] * PathFinder.NUM_OF_POSSIBLE_DIRECTION +
+                lastDirection[corridor]] = corridor;
+    }
+
+    private void setJunction(int cell, boolean isJunction) {
+        if (junction[cell] != isJunction) {
+            junctionCount += isJunction ? 1 : -1;
+            junction[cell] = isJunction;
+        }
+    }
+
+    private int newCorridor() {
+        if (corridorCount == cells.length) {
+            int capacity = corridorCount * 2;
+            cells = Arrays.copyOf(cells, capacity);
+            first = Arrays.copyOf(first, capacity);
+            last = Arrays.copyOf(last, capacity);
+            firstDirection = Arrays.copyOf(firstDirection, capacity);
+            lastDirection = Arrays.copyOf(lastDirection, capacity);
+            trapCost = Arrays.copyOf(trapCost, capacity);
+            turns = Arrays.copyOf(turns, capacity);
+            turnBlocked = Arrays.copyOf(turnBlocked, capacity);
+        }
+        return corridorCount++;
+    }
+
+    private boolean isOpen(int x, int y) {
+        return route.isWithinMap(x, y) && !route.isBlocked(x, y);
+    }
+
+    private boolean isOpen(int cell) {
+        return !route.isBlocked(cell % width, cell / width);
+    }
+
+    private int openNeighbours(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        int count = 0;
+        for (int d = 0; d < PathFinder.NUM_OF_POSSIBLE_DIRECTION; d++) {
+            if (isOpen(x + dx(d), y + dy(d))) count++;
+        }
+        return count;
+    }
+
+    private static int dx(int direction) {
+        return PathFinder.DIRECTIONS_DELTA[direction];
+    }
+
+    private static int dy(int direction) {
+        return PathFinder.DIRECTIONS_DELTA
+                [(direction + 1) % PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+    }
+
+    private static int[] push(int[] array, int index, int value) {
+        if (index == array.length) array = Arrays.copyOf(array, index * 2);
+        array[index] = value;
+        return array;
+    }
+}
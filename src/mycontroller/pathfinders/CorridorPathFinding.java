@@ -0,0 +1,430 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+import utilities.Coordinate;
+import world.WorldSpatial;
+
+import java.util.Arrays;
+
+/**
+ * The PathFinder that runs the trap weighted Dijkstra's Algorithm over the
+ * junctions of a CorridorGraph instead of every coordinate. A corridor is
+ * crossed in one step, costing DISTANCE and the trap cost of each of its
+ * coordinates, so on maps of corridors the search only handles the
+ * junctions.
+ *
+ * The corridors the car and the destination are in are followed coordinate
+ * by coordinate, as the car starts off forward or backward in the middle of
+ * one, cannot drive back through its own coordinate, and the destination may
+ * be anywhere along one. The coordinates of the corridors crossed are
+ * filled in once the destination is reached, so they are backtracked as
+ * usual.
+ *
+ * Without a destination, such as when measuring how far the keys and heal
+ * tiles are, every coordinate is searched as before. Such a search reaches
+ * every junction anyway, and on the generated maps about half of the
+ * coordinates are junctions, so crossing corridors in one step saves little
+ * and each junction costs more to leave than a coordinate. For the same
+ * reason ExplorationState keeps its own search of the grid, which also
+ * stops at the first unexplored coordinate it reaches.
+ *
+ * Where corridors hold less than a quarter of the coordinates, as on open
+ * maps with scattered walls, nearly every step is from junction to junction
+ * and the grid is searched as in DijkstraPathFinding instead.
+ *
+ * A junction or destination the car cannot turn on is searched once for
+ * each direction it is entered in, as in DijkstraPathFinding. Along a
+ * corridor the direction is fixed, so the coordinates of a corridor are
+ * searched once each.
+ */
+public class CorridorPathFinding extends DijkstraPathFinding{
+    /**
+     * Unless at least one in this many coordinates that are not blocked is
+     * in a corridor, the grid is searched instead
+     */
+    private static final int CORRIDOR_SHARE = 4;
+
+    private CorridorGraph graph;
+    private BucketQueue open;
+
+    /**
+     * The corridor each junction was reached through, or
+     * CorridorGraph.NONE when its parent was reached coordinate by
+     * coordinate, valid alongside the distance of the junction. This and
+     * the arrays below are indexed by the nodes of the search: the states
+     * of DijkstraPathFinding, the coordinates along a corridor by their
+     * cell index.
+     */
+    private int[] through;
+
+    /**
+     * The first coordinates the car can reach
+     */
+    private int[] initialCells = new int[2];
+
+    private int source;
+    private int target;
+
+    /**
+     * The corridors followed coordinate by coordinate
+     */
+    private int sourceCorridor;
+    private int targetCorridor;
+
+    /**
+     * Instantiates a new corridor path finding.
+     *
+     * @param route the route
+     */
+    public CorridorPathFinding(Route route) {
+        super(route);
+        graph = new CorridorGraph(route);
+        open = new BucketQueue(route.getWidth() + route.getHeight());
+        through = new int[route.getWidth() * route.getHeight() *
+                (1 + NUM_OF_POSSIBLE_DIRECTION)];
+        Arrays.fill(through, CorridorGraph.NONE);
+    }
+
+    /**
+     * Runs Dijkstra's Algorithm from junction to junction until the
+     * destination is taken off the queue, then fills in the coordinates of
+     * the corridors on the way to it.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     * @param destination the destination
+     */
+    @Override
+    protected void search(Coordinate currentCoordinate,
+                          WorldSpatial.Direction orientation,
+                          Coordinate destination){
+        target = cellOf(destination);
+        if (target == NO_PARENT) {
+            super.search(currentCoordinate, orientation, destination);
+            return;
+        }
+
+        graph.refresh();
+        int corridorCells = graph.getCorridorCells();
+        if (corridorCells * CORRIDOR_SHARE <
+                corridorCells + graph.getJunctionCount()) {
+            super.search(currentCoordinate, orientation, destination);
+            return;
+        }
+        int width = route.getWidth();
+        source = cellOf(currentCoordinate);
+        sourceCorridor = graph.corridorOf(source);
+        targetCorridor = graph.corridorOf(target);
+        startSearch(source);
+        startStates();
+        targetState = target;
+        through[source] = CorridorGraph.NONE;
+
+        /**
+         * Crossing a corridor costs at most its coordinates and the junction
+         * it ends at
+         */
+        open.reset((graph.getLongest() + 1) *
+                (DISTANCE + trapFactor() * route.getMaxTrapCost()));
+
+        /**
+         * A car must move one coordinate forward or backward at first, so
+         * the search starts from those coordinates
+         */
+        int count = seedInitialCoordinates(currentCoordinate, orientation,
+                initialCells);
+        for (int i = 0; i < count; i++) {
+            int cell = initialCells[i];
+            int node = nodeOf(cell, directionIndex(source, cell, width));
+            reachState(node, stepCost(cell % width, cell / width), source);
+            settle(node);
+        }
+
+        while (!open.isEmpty()) {
+            int node = open.poll();
+
+            /**
+             * Skipping entries left behind after a cheaper way to the
+             * coordinate was found
+             */
+            if (open.lastPriority() != stateDistance(node)) continue;
+
+            /**
+             * Reaching a destination means that the algorithm should stop
+             */
+            if (cellOfState(node) == target) {
+                targetState = node;
+                fillCorridors();
+                return;
+            }
+            leave(node);
+        }
+    }
+
+    /**
+     * The node a coordinate is searched in when entered in a direction. Only
+     * the junctions and the destination are searched once for each direction
+     * the car cannot turn on them in: along a corridor the direction is
+     * already fixed.
+     *
+     * @param cell the cell index
+     * @param direction the direction it is entered in, an index of
+     *                  DIRECTIONS_DELTA
+     */
+    private int nodeOf(int cell, int direction){
+        if (cell == source || (!graph.isJunction(cell) && cell != target)) {
+            return cell;
+        }
+        return stateOf(cell, direction);
+    }
+
+    /**
+     * The node a coordinate is left in towards a neighbour.
+     */
+    private int nodeTowards(int cell, int next){
+        return nodeOf(cell, directionIndex(cell, next, route.getWidth()));
+    }
+
+    /**
+     * The coordinate a node was reached from: its parent, or the coordinate
+     * behind one the car cannot turn on.
+     */
+    private int fromOf(int node){
+        int direction = directionOfState(node);
+        int cell = cellOfState(node);
+        if (direction == NO_PARENT) return parent(cell);
+        return cell - DIRECTIONS_DELTA[direction] - route.getWidth() *
+                DIRECTIONS_DELTA[(direction+1)%NUM_OF_POSSIBLE_DIRECTION];
+    }
+
+    /**
+     * Carries on from a node just reached: a junction or the destination
+     * goes on the queue, while from a coordinate in a corridor the rest of
+     * the corridor is followed away from where it was reached from.
+     */
+    private void settle(int node){
+        int cell = cellOfState(node);
+        if (graph.isJunction(cell) || cell == target) {
+            through[node] = CorridorGraph.NONE;
+            open.push(stateDistance(node), node);
+            return;
+        }
+
+        int corridor = graph.corridorOf(cell);
+        int[] cells = graph.getCells(corridor);
+        int position = graph.positionOf(cell);
+        int before = position > 0 ? cells[position - 1] :
+                graph.getFirst(corridor);
+        int after = position < cells.length - 1 ? cells[position + 1] :
+                graph.getLast(corridor);
+
+        /**
+         * A car on a blocked coordinate is not part of the corridor, so
+         * the corridor is followed both ways
+         */
+        if (after != parent(cell)) {
+            followCells(corridor, true, position + 1, cell);
+        }
+        if (before != parent(cell)) {
+            followCells(corridor, false, position - 1, cell);
+        }
+    }
+
+    /**
+     * Leaves a junction through each of its corridors the car may drive
+     * into, crossing the corridors in one step unless the car or the
+     * destination is in them.
+     */
+    private void leave(int node){
+        int width = route.getWidth();
+        int cell = cellOfState(node);
+        int x = cell % width;
+        int y = cell / width;
+        int nodeDistance = stateDistance(node);
+
+        /**
+         * The car cannot turn on some traps, so it can only carry on in
+         * the direction it entered them in
+         */
+        int straight = directionOfState(node);
+
+        for (int d = 0; d < NUM_OF_POSSIBLE_DIRECTION; d++) {
+            if (straight != NO_PARENT && d != straight) continue;
+            int nextX = x + DIRECTIONS_DELTA[d];
+            int nextY = y + DIRECTIONS_DELTA[(d+1)%NUM_OF_POSSIBLE_DIRECTION];
+            if (!isPassable(nextX, nextY)) continue;
+
+            /**
+             * A neighbouring junction is stepped onto as in
+             * DijkstraPathFinding, with no corridor in between
+             */
+            int next = nextY * width + nextX;
+            if (graph.isJunction(next)) {
+                if (next == source) continue;
+                int nextNode = nodeOf(next, d);
+                int nextDistance = nodeDistance + stepCost(nextX, nextY);
+                if (nextDistance < stateDistance(nextNode)) {
+                    reachState(nextNode, nextDistance, cell);
+                    through[nextNode] = CorridorGraph.NONE;
+                    open.push(nextDistance, nextNode);
+                }
+                continue;
+            }
+
+            int corridor = graph.getLeaving(cell, d);
+            if (corridor == CorridorGraph.NONE) continue;
+            boolean forward = graph.getFirst(corridor) == cell &&
+                    graph.getFirstDirection(corridor) == d;
+            int[] cells = graph.getCells(corridor);
+
+            if (corridor == sourceCorridor || corridor == targetCorridor) {
+                followCells(corridor, forward,
+                        forward ? 0 : cells.length - 1, node);
+                continue;
+            }
+            if (graph.isTurnBlocked(corridor)) continue;
+
+            int end = forward ? graph.getLast(corridor) :
+                    graph.getFirst(corridor);
+            if (end == source) continue;
+
+            int endDistance = nodeDistance + cells.length * DISTANCE +
+                    trapFactor() * graph.getTrapCost(corridor) +
+                    stepCost(end % width, end / width);
+            int beforeEnd = cells.length == 0 ? cell :
+                    cells[forward ? cells.length - 1 : 0];
+            int endNode = nodeOf(end, directionIndex(beforeEnd, end, width));
+            if (endDistance < stateDistance(endNode)) {
+                reachState(endNode, endDistance, beforeEnd);
+                through[endNode] = corridor;
+                open.push(endDistance, endNode);
+            }
+        }
+    }
+
+    /**
+     * Follows a corridor coordinate by coordinate, reaching each of them,
+     * until it reaches its junction, the destination or the car, or turns
+     * where the car cannot.
+     *
+     * @param corridor the corridor
+     * @param forward whether it is followed towards its last junction
+     * @param position the position of the first coordinate to reach
+     * @param fromNode the node it is followed from, already reached
+     */
+    private void followCells(int corridor, boolean forward, int position,
+                             int fromNode){
+        int width = route.getWidth();
+        int[] cells = graph.getCells(corridor);
+        int step = forward ? 1 : -1;
+        int previousNode = fromNode;
+        int previous = cellOfState(fromNode);
+
+        for (int i = position; i >= 0 && i < cells.length; i += step) {
+            int cell = cells[i];
+            if (!mayStep(previousNode, cell)) return;
+
+            int node = nodeOf(cell, directionIndex(previous, cell, width));
+            int nodeDistance = stateDistance(previousNode) +
+                    stepCost(cell % width, cell / width);
+
+            /**
+             * Reaching a coordinate no more cheaply than from the other end
+             * of the corridor, so the coordinates beyond it are cheaper from
+             * there
+             */
+            if (nodeDistance >= stateDistance(node)) return;
+            reachState(node, nodeDistance, previous);
+            if (cell == target) {
+                through[node] = CorridorGraph.NONE;
+                open.push(nodeDistance, node);
+                return;
+            }
+            previous = cell;
+            previousNode = node;
+        }
+
+        int end = forward ? graph.getLast(corridor) :
+                graph.getFirst(corridor);
+        if (!mayStep(previousNode, end)) return;
+        int endNode = nodeOf(end, directionIndex(previous, end, width));
+        int endDistance = stateDistance(previousNode) +
+                stepCost(end % width, end / width);
+        if (endDistance < stateDistance(endNode)) {
+            reachState(endNode, endDistance, previous);
+            through[endNode] = CorridorGraph.NONE;
+            open.push(endDistance, endNode);
+        }
+    }
+
+    /**
+     * Whether the car may drive from a reached node to the next coordinate:
+     * never back through its own coordinate, and only straight on from a
+     * coordinate it cannot turn on.
+     */
+    private boolean mayStep(int fromNode, int to){
+        if (to == source) return false;
+        int width = route.getWidth();
+        int from = cellOfState(fromNode);
+        int direction = directionOfState(fromNode);
+        if (direction != NO_PARENT) {
+            return directionIndex(from, to, width) == direction;
+        }
+        if (from == source || route.canTurn(from % width, from / width)) {
+            return true;
+        }
+        return to == 2 * from - parent(from);
+    }
+
+    /**
+     * The corridor crossed in one step to a node, or CorridorGraph.NONE
+     */
+    private int crossed(int node){
+        return graph.isJunction(cellOfState(node)) ? through[node] :
+                CorridorGraph.NONE;
+    }
+
+    /**
+     * Reaches the coordinates of every corridor crossed in one step on the
+     * way to the destination, so the path can be backtracked.
+     */
+    private void fillCorridors(){
+        int width = route.getWidth();
+        int node = targetState;
+        while (node != source) {
+            int cell = cellOfState(node);
+            int from = fromOf(node);
+            int corridor = crossed(node);
+            if (corridor == CorridorGraph.NONE) {
+                node = nodeTowards(from, cell);
+                continue;
+            }
+
+            /**
+             * Reaching the corridor's coordinates from the junction it was
+             * entered from
+             */
+            int[] cells = graph.getCells(corridor);
+            boolean forward = graph.getLast(corridor) == cell &&
+                    (cells.length == 0 ? from == graph.getFirst(corridor) :
+                            from == cells[cells.length - 1]);
+            int start = forward ? graph.getFirst(corridor) :
+                    graph.getLast(corridor);
+            int startNode = nodeTowards(start, cells.length == 0 ? cell :
+                    cells[forward ? 0 : cells.length - 1]);
+            int previous = start;
+            int previousDistance = stateDistance(startNode);
+            for (int i = 0; i < cells.length; i++) {
+                int next = cells[forward ? i : cells.length - 1 - i];
+                previousDistance += stepCost(next % width, next / width);
+                reach(next, previousDistance, previous);
+                previous = next;
+            }
+            through[node] = CorridorGraph.NONE;
+            node = startNode;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+import utilities.Coordinate;
+import world.WorldSpatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The PathFinder that uses D* Lite with the same trap costs as Dijkstra's
+ * Algorithm. It searches backwards from the destination and keeps its search
+ * tree between calls: while the destination stays the same, only the
+ * coordinates in Route's change log since the last call, and the ones that
+ * depend on them, are repaired, however far the car has moved.
+ *
+ * As in the forward search, paths never pass through the car's coordinate,
+ * so the car's coordinate is treated as one more change whenever it moves. A
+ * new destination or a change of avoidTrap starts a new tree. Finding the
+ * nearest coordinate has no single destination, so it is left to Dijkstra's
+ * Algorithm. The keys are estimated with the landmarks of a LandmarkTable,
+ * as in A*.
+ *
+ * The tree is built over the states of DijkstraPathFinding, so a coordinate
+ * the car cannot turn on has a cost to the destination for each direction it
+ * is entered in, and is only left in that direction. A coordinate found to
+ * be such a trap is in Route's change log, and the states that no longer
+ * apply to it are repaired as unreachable.
+ */
+public class DStarLitePathFinding extends DijkstraPathFinding{
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    /**
+     * To mark a coordinate as not being on the queue
+     */
+    private static final long NOT_QUEUED = -1;
+
+    /**
+     * The cost from each state to the destination, and the one step
+     * lookahead of it. A state is consistent when the two are equal.
+     * Values are only valid when the stamp equals the current tree.
+     */
+    private int[] g;
+    private int[] rhs;
+    private long[] queuedKey;
+    private int[] stamp;
+    private int tree;
+
+    /**
+     * The queue of inconsistent states, entries whose key no longer matches
+     * queuedKey are skipped
+     */
+    private CellPriorityQueue open;
+
+    /**
+     * What the current tree was built for
+     */
+    private int goal = NO_PARENT;
+    private boolean treeAvoidTrap;
+
+    /**
+     * The key modifier, the heuristic distance the car has moved since the
+     * tree was started
+     */
+    private int keyModifier;
+    private int start;
+
+    /**
+     * How much of Route's change log has been repaired
+     */
+    private int changesRead;
+
+    /**
+     * The first coordinates the car can reach, and the states it reaches
+     * them in
+     */
+    private int[] initialCells = new int[2];
+    private int[] initialStates = new int[2];
+
+    /**
+     * The distances from the landmarks, worked out in the background
+     */
+    private LandmarkTable landmarks;
+
+    /**
+     * Instantiates a new D* Lite path finding.
+     *
+     * @param route the route
+     */
+    public DStarLitePathFinding(Route route) {
+        super(route);
+        int states = route.getWidth() * route.getHeight() *
+                (1 + NUM_OF_POSSIBLE_DIRECTION);
+        g = new int[states];
+        rhs = new int[states];
+        queuedKey = new long[states];
+        stamp = new int[states];
+        open = new CellPriorityQueue(route.getWidth() + route.getHeight());
+        landmarks = route.getLandmarks();
+    }
+
+    @Override
+    public List<Coordinate> findBestPath(Coordinate currentCoordinate,
+                                         Coordinate destination,
+                                         WorldSpatial.Direction orientation,
+                                         boolean avoidTrap) {
+        if (!mayReach(currentCoordinate, destination)) return UNREACHABLE;
+        this.avoidTrap = avoidTrap;
+        int target = cellOf(destination);
+        int source = cellOf(currentCoordinate);
+        if (target == NO_PARENT || target == source) {
+            return super.findBestPath(currentCoordinate, destination,
+                    orientation, avoidTrap);
+        }
+
+        /**
+         * Reusing the tree for the same destination, repairing what changed
+         */
+        if (target != goal || avoidTrap != treeAvoidTrap) {
+            start = source;
+            startTree(target, avoidTrap);
+        } else {
+            int lastStart = start;
+            keyModifier += heuristic(lastStart, source);
+            start = source;
+            if (lastStart != start) {
+                updateAround(lastStart);
+                updateAround(start);
+            }
+            repairChanges();
+        }
+
+        /**
+         * A car must move one coordinate forward or backward at first, so the
+         * tree has to be settled for those coordinates
+         */
+        int width = route.getWidth();
+        int count = seedInitialCoordinates(currentCoordinate, orientation,
+                initialCells);
+        for (int i = 0; i < count; i++) {
+            int cell = initialCells[i];
+            initialStates[i] = stateOf(cell,
+                    directionIndex(source, cell, width));
+        }
+        computeShortestPath(count);
+
+        int first = NO_PARENT;
+        int firstCost = INFINITY;
+        for (int i = 0; i < count; i++) {
+            int state = initialStates[i];
+            int cost = stepCost(initialCells[i]) + g(state);
+            if (cost < firstCost) {
+                first = state;
+                firstCost = cost;
+            }
+        }
+        if (first == NO_PARENT) return UNREACHABLE;
+
+        /**
+         * A consistent tree always leads to the destination, Dijkstra's
+         * Algorithm is only a safety net
+         */
+        List<Coordinate> path = followTree(first);
+        if (path == null) {
+            return super.findBestPath(currentCoordinate, destination,
+                    orientation, avoidTrap);
+        }
+        return path;
+    }
+
+    /**
+     * Starts a new tree towards the destination.
+     */
+    private void startTree(int target, boolean avoidTrap) {
+
+        /**
+         * The keys of a tree must keep the same heuristic, so the landmarks
+         * are waited for before the first one
+         */
+        landmarks.await();
+        tree++;
+        if (tree == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            tree = 1;
+        }
+        goal = target;
+        treeAvoidTrap = avoidTrap;
+        keyModifier = 0;
+        open.clear();
+        changesRead = route.getChangeCount();
+
+        updateStates(goal);
+    }
+
+    /**
+     * Updates the coordinates that changed since the last call and the ones
+     * next to them, as the cost of driving onto a changed coordinate changes
+     * their lookahead.
+     */
+    private void repairChanges() {
+        int width = route.getWidth();
+        int count = route.getChangeCount();
+        for (int i = changesRead; i < count; i++) {
+            updateAround(route.getChangedY(i) * width + route.getChangedX(i));
+        }
+        changesRead = count;
+    }
+
+    /**
+     * Processes the queue until the first states are settled, or there is
+     * nothing left to process.
+     */
+    private void computeShortestPath(int count) {
+        while (true) {
+            long top = topKey();
+            if (top == NOT_QUEUED || isSettled(top, count)) return;
+
+            int state = open.peekCell();
+            long newKey = key(state);
+            if (top < newKey) {
+
+                /**
+                 * The key is out of date since the car moved, so it is queued
+                 * again with the current one
+                 */
+                open.poll();
+                queuedKey[state] = NOT_QUEUED;
+                queue(state, newKey);
+            } else if (g[state] > rhs[state]) {
+
+                /**
+                 * Overconsistent, the cost goes down to the lookahead
+                 */
+                open.poll();
+                queuedKey[state] = NOT_QUEUED;
+                g[state] = rhs[state];
+                updatePredecessors(state);
+            } else {
+
+                /**
+                 * Underconsistent, the cost is reset and worked out again
+                 */
+                g[state] = INFINITY;
+                updatePredecessors(state);
+                updateVertex(state);
+            }
+        }
+    }
+
+    /**
+     * Whether every first state is consistent with a key no larger than the
+     * smallest queued key, which makes its cost final
+     */
+    private boolean isSettled(long top, int count) {
+        for (int i = 0; i < count; i++) {
+            int state = initialStates[i];
+            if (top < key(state) || g(state) != rhs[state]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Updates a coordinate whose cost changed and the states next to it
+     */
+    private void updateAround(int cell) {
+        updateStates(cell);
+        int width = route.getWidth();
+        if (route.canTurn(cell % width, cell / width)) {
+            updatePredecessors(cell);
+            return;
+        }
+        for (int d = 0; d < NUM_OF_POSSIBLE_DIRECTION; d++) {
+            updatePredecessors(stateOf(cell, d));
+        }
+    }
+
+    /**
+     * Updates every state of a coordinate, including the ones that do not
+     * apply to it, as whether the car can turn on it may have changed
+     */
+    private void updateStates(int cell) {
+        int states = route.getWidth() * route.getHeight();
+        updateVertex(cell);
+        for (int d = 0; d < NUM_OF_POSSIBLE_DIRECTION; d++) {
+            updateVertex(states + cell * NUM_OF_POSSIBLE_DIRECTION + d);
+        }
+    }
+
+    /**
+     * Updates the states that can be driven from onto a state: the
+     * neighbours behind each direction it can be entered in, in the state
+     * they carry on in that direction.
+     */
+    private void updatePredecessors(int state) {
+        int width = route.getWidth();
+        int cell = cellOfState(state);
+        int x = cell % width;
+        int y = cell / width;
+        int entered = directionOfState(state);
+        for (int d = 0; d < NUM_OF_POSSIBLE_DIRECTION; d++) {
+            if (entered != NO_PARENT && d != entered) continue;
+            int previousX = x - DIRECTIONS_DELTA[d];
+            int previousY = y -
+                    DIRECTIONS_DELTA[(d+1)%NUM_OF_POSSIBLE_DIRECTION];
+            if (route.isWithinMap(previousX, previousY)) {
+                updateVertex(stateOf(previousY * width + previousX, d));
+            }
+        }
+    }
+
+    /**
+     * Works out the lookahead of a state again and queues it should it be
+     * inconsistent.
+     */
+    private void updateVertex(int state) {
+        touch(state);
+        rhs[state] = lookahead(state);
+        if (g[state] != rhs[state]) {
+            queue(state, key(state));
+        } else {
+            queuedKey[state] = NOT_QUEUED;
+        }
+    }
+
+    /**
+     * The cheapest cost to the destination through one of the successors,
+     * 0 at the destination, and never reached from a state that does not
+     * apply to its coordinate
+     */
+    private int lookahead(int state) {
+        int width = route.getWidth();
+        int cell = cellOfState(state);
+        boolean turns = route.canTurn(cell % width, cell / width);
+        if ((directionOfState(state) == NO_PARENT) != turns ||
+                !isOpen(cell % width, cell / width)) {
+            return INFINITY;
+        }
+        if (cell == goal) return 0;
+
+        int next = cheapestSuccessor(state);
+        if (next == NO_PARENT) return INFINITY;
+        return Math.min(INFINITY, stepCost(cellOfState(next)) + g(next));
+    }
+
+    /**
+     * Following the cheapest successors from the first state to the
+     * destination.
+     *
+     * @return the path from the car, or null if the tree does not lead to
+     * the destination
+     */
+    private List<Coordinate> followTree(int first) {
+        int width = route.getWidth();
+        List<Coordinate> path = new ArrayList<>();
+        path.add(new Coordinate(start % width, start / width));
+        int cell = cellOfState(first);
+        path.add(new Coordinate(cell % width, cell / width));
+
+        int state = first;
+        int limit = g.length;
+        while (cell != goal) {
+            int next = cheapestSuccessor(state);
+            if (next == NO_PARENT || g(next) >= INFINITY ||
+                    path.size() > limit) {
+                return null;
+            }
+
+            cell = cellOfState(next);
+            path.add(new Coordinate(cell % width, cell / width));
+            state = next;
+        }
+        return path;
+    }
+
+    /**
+     * The successor with the cheapest way to the destination, only straight
+     * on from a coordinate the car cannot turn on
+     *
+     * @param state the state
+     * @return the successor, or NO_PARENT if none can be driven onto
+     */
+    private int cheapestSuccessor(int state) {
+        int width = route.getWidth();
+        int cell = cellOfState(state);
+        int x = cell % width;
+        int y = cell / width;
+        int straight = directionOfState(state);
+        int next = NO_PARENT;
+        int best = Integer.MAX_VALUE;
+        for (int d = 0; d < NUM_OF_POSSIBLE_DIRECTION; d++) {
+            if (straight != NO_PARENT && d != straight) continue;
+            int nextX = x + DIRECTIONS_DELTA[d];
+            int nextY = y + DIRECTIONS_DELTA[(d+1)%NUM_OF_POSSIBLE_DIRECTION];
+            if (!isOpen(nextX, nextY)) continue;
+            int successor = stateOf(nextY * width + nextX, d);
+            int cost = stepCost(nextX, nextY) + g(successor);
+            if (cost < best) {
+                best = cost;
+                next = successor;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Whether a path may go through a coordinate, which excludes the car's
+     */
+    private boolean isOpen(int x, int y) {
+        return isPassable(x, y) && y * route.getWidth() + x != start;
+    }
+
+    /**
+     * The smallest valid key on the queue, dropping stale entries
+     *
+     * @return the key, or NOT_QUEUED if the queue is empty
+     */
+    private long topKey() {
+        while (!open.isEmpty()) {
+            int state = open.peekCell();
+            if (stamp[state] == tree &&
+                    queuedKey[state] == open.peekPriority()) {
+                return open.peekPriority();
+            }
+            open.poll();
+        }
+        return NOT_QUEUED;
+    }
+
+    private void queue(int state, long key) {
+        if (queuedKey[state] == key) return;
+        queuedKey[state] = key;
+        open.push(key, state);
+    }
+
+    /**
+     * The priority of a state: the estimated cost of a path from the car
+     * through it, then its cost to the destination
+     */
+    private long key(int state) {
+        int cost = Math.min(g(state), rhs[state]);
+        long estimate = (long) cost + heuristic(start, cellOfState(state)) +
+                keyModifier;
+        return (estimate << 32) | cost;
+    }
+
+    private int g(int state) {
+        touch(state);
+        return g[state];
+    }
+
+    /**
+     * Resets a state the current tree has not seen yet
+     */
+    private void touch(int state) {
+        if (stamp[state] != tree) {
+            stamp[state] = tree;
+            g[state] = INFINITY;
+            rhs[state] = INFINITY;
+            queuedKey[state] = NOT_QUEUED;
+        }
+    }
+
+    private int stepCost(int cell) {
+        int width = route.getWidth();
+        return stepCost(cell % width, cell / width);
+    }
+
+    /**
+     * The lower bound of the distance between two cells, from the Manhattan
+     * distance and the landmarks
+     */
+    private int heuristic(int from, int to) {
+        return landmarks.lowerBound(to, from);
+    }
+}
@@ -0,0 +1,326 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+import utilities.Coordinate;
+import world.WorldSpatial;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The PathFinder that uses Dijkstra's Algorithm with the costs of the traps.
+ * Rather than treating traps as walls and searching again when that fails,
+ * every coordinate costs DISTANCE plus the cost of its trap, so a single
+ * search weighs a detour against the health lost and the turns given up
+ * going through a trap field.
+ *
+ * The car can only leave a coordinate it cannot turn on in the direction it
+ * entered it, so such a coordinate is searched once for each direction it is
+ * entered in. The cheapest way onto it then no longer decides the only way
+ * off it, and a path may cross it twice.
+ */
+public class DijkstraPathFinding extends AbstractPathFinding{
+    /**
+     * How much more the traps cost when they are to be avoided
+     */
+    public static final int AVOID_TRAP_FACTOR = 4;
+
+    private BucketQueue open;
+
+    /**
+     * The first coordinates the car can reach
+     */
+    private int[] initialCells = new int[2];
+
+    /**
+     * The number of cells. A coordinate the car can turn on is searched as
+     * its cell index, one it cannot turn on as cells + cell * 4 + the
+     * direction it was entered in, an index of DIRECTIONS_DELTA.
+     */
+    private int cells;
+
+    /**
+     * The distances of the directions each coordinate that the car cannot
+     * turn on was entered in, valid when the stamp equals the current search
+     */
+    private int[] enteredDistance;
+    private int[] enteredStamp;
+    private int searches;
+
+    /**
+     * The state the destination was taken off the queue in, which backtrack
+     * starts from
+     */
+    protected int targetState;
+
+    /**
+     * Instantiates a new Dijkstra path finding.
+     *
+     * @param route the route
+     */
+    public DijkstraPathFinding(Route route) {
+        super(route);
+        cells = route.getWidth() * route.getHeight();
+        open = new BucketQueue(cells);
+        enteredDistance = new int[cells * NUM_OF_POSSIBLE_DIRECTION];
+        enteredStamp = new int[cells * NUM_OF_POSSIBLE_DIRECTION];
+    }
+
+    @Override
+    public List<Coordinate> findBestPath(Coordinate currentCoordinate,
+                                         Coordinate destination,
+                                         WorldSpatial.Direction orientation,
+                                         boolean avoidTrap) {
+        if(!mayReach(currentCoordinate, destination)) return UNREACHABLE;
+        this.avoidTrap = avoidTrap;
+
+        /**
+         * The traps are weighed instead of excluded, so one search is enough
+         */
+        search(currentCoordinate, orientation, destination);
+
+        if(!isReachable(destination)) return UNREACHABLE;
+        return backtrack(currentCoordinate, destination);
+    }
+
+    /**
+     * Runs Dijkstra's Algorithm from the current coordinate until the
+     * destination is taken off the queue or every reachable coordinate has
+     * been processed.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     * @param destination the destination
+     */
+    @Override
+    protected void search(Coordinate currentCoordinate,
+                          WorldSpatial.Direction orientation,
+                          Coordinate destination){
+        int width = route.getWidth();
+        int target = cellOf(destination);
+        int source = cellOf(currentCoordinate);
+
+        startSearch(source);
+        startStates();
+        targetState = target;
+        open.reset(DISTANCE + trapFactor() * route.getMaxTrapCost());
+
+        /**
+         * A car must move one coordinate forward or backward at first, so
+         * the search starts from those coordinates
+         */
+        int count = seedInitialCoordinates(currentCoordinate, orientation,
+                initialCells);
+        for (int i = 0; i < count; i++) {
+            int cell = initialCells[i];
+            int state = stateOf(cell, directionIndex(source, cell, width));
+            int cellDistance = stepCost(cell % width, cell / width);
+            reachState(state, cellDistance, source);
+            open.push(cellDistance, state);
+        }
+
+        while (!open.isEmpty()) {
+            int state = open.poll();
+            int cellDistance = open.lastPriority();
+
+            /**
+             * Skipping entries left behind after a cheaper way to the
+             * coordinate was found
+             */
+            if (cellDistance != stateDistance(state)) continue;
+
+            /**
+             * Reaching a destination means that the algorithm should stop
+             */
+            int cell = cellOfState(state);
+            if (cell == target) {
+                targetState = state;
+                return;
+            }
+
+            int sourceX = cell % width;
+            int sourceY = cell / width;
+
+            /**
+             * The car cannot turn on some traps, so it can only carry on in
+             * the direction it entered them in
+             */
+            int straight = directionOfState(state);
+
+            for (int i = 0; i < NUM_OF_POSSIBLE_DIRECTION; i++) {
+                if(straight != NO_PARENT && i != straight) continue;
+                int nextX = sourceX + DIRECTIONS_DELTA[i];
+                int nextY = sourceY +
+                        DIRECTIONS_DELTA[(i+1)%NUM_OF_POSSIBLE_DIRECTION];
+
+                if(!isPassable(nextX, nextY)) continue;
+                int next = nextY * width + nextX;
+                if(next == source) continue;
+
+                /**
+                 * Update the distance values should it be cheaper
+                 */
+                int nextState = stateOf(next, i);
+                int nextDistance = cellDistance + stepCost(nextX, nextY);
+                if(nextDistance < stateDistance(nextState)){
+                    reachState(nextState, nextDistance, cell);
+                    open.push(nextDistance, nextState);
+                }
+            }
+        }
+    }
+
+    /**
+     * Follows the states back from the one the destination was taken off
+     * the queue in, as a path may cross a coordinate the car cannot turn on
+     * more than once.
+     */
+    @Override
+    protected List<Coordinate> backtrack(Coordinate startingCoordinate,
+                                         Coordinate destination){
+        int width = route.getWidth();
+        int source = cellOf(startingCoordinate);
+
+        int length = 1;
+        for (int state = targetState; state != source;
+             state = previousState(state, source)) {
+            length++;
+        }
+        Coordinate[] path = new Coordinate[length];
+
+        int state = targetState;
+        for (int i = length - 1; i >= 0; i--) {
+            int cell = cellOfState(state);
+            path[i] = new Coordinate(cell % width, cell / width);
+            if (i > 0) state = previousState(state, source);
+        }
+
+        return Arrays.asList(path);
+    }
+
+    /**
+     * The state a coordinate is searched in when entered in a direction.
+     *
+     * @param cell the cell index
+     * @param direction the direction it is entered in, an index of
+     *                  DIRECTIONS_DELTA
+     * @return the cell index if the car can turn on it, otherwise the state
+     * of the direction
+     */
+    protected int stateOf(int cell, int direction){
+        int width = route.getWidth();
+        if (route.canTurn(cell % width, cell / width)) return cell;
+        return cells + cell * NUM_OF_POSSIBLE_DIRECTION + direction;
+    }
+
+    /**
+     * The cell index of a state.
+     */
+    protected int cellOfState(int state){
+        return state < cells ? state :
+                (state - cells) / NUM_OF_POSSIBLE_DIRECTION;
+    }
+
+    /**
+     * The direction a coordinate the car cannot turn on was entered in.
+     *
+     * @return an index of DIRECTIONS_DELTA, or NO_PARENT for a coordinate
+     * the car can turn on
+     */
+    protected int directionOfState(int state){
+        return state < cells ? NO_PARENT :
+                (state - cells) % NUM_OF_POSSIBLE_DIRECTION;
+    }
+
+    /**
+     * The distance of a state from the source in the current search.
+     *
+     * @return the distance, or NOT_REACHED
+     */
+    protected int stateDistance(int state){
+        if (state < cells) return distance(state);
+        return enteredStamp[state - cells] == searches ?
+                enteredDistance[state - cells] : NOT_REACHED;
+    }
+
+    /**
+     * Marks a state as reached. The coordinate keeps the smallest distance
+     * of its states, which is what the distance of a coordinate means to
+     * the callers.
+     *
+     * @param state the state
+     * @param stateDistance the distance from the source
+     * @param from the cell it was reached from
+     */
+    protected void reachState(int state, int stateDistance, int from){
+        if (state >= cells) {
+            enteredDistance[state - cells] = stateDistance;
+            enteredStamp[state - cells] = searches;
+            if (stateDistance >= distance(cellOfState(state))) return;
+        }
+        reach(cellOfState(state), stateDistance, from);
+    }
+
+    /**
+     * The state a path reaches a state from. A coordinate the car can turn on
+     * is reached from its parent, one it cannot from the coordinate behind
+     * it, and either is left straight on from one the car cannot turn on.
+     *
+     * @param state the state, not the source
+     * @param source the cell index of the car
+     * @return the previous state, the source's cell index at the start
+     */
+    protected int previousState(int state, int source){
+        int width = route.getWidth();
+        int cell = cellOfState(state);
+        int from;
+        int direction = directionOfState(state);
+        if (direction == NO_PARENT) {
+            from = parent(cell);
+            direction = directionIndex(from, cell, width);
+        } else {
+            from = cell - DIRECTIONS_DELTA[direction] - width *
+                    DIRECTIONS_DELTA[(direction+1)%NUM_OF_POSSIBLE_DIRECTION];
+        }
+        return from == source ? source : stateOf(from, direction);
+    }
+
+    /**
+     * Starts a new generation of the states of the coordinates the car
+     * cannot turn on
+     */
+    protected void startStates(){
+        searches++;
+        if (searches == Integer.MAX_VALUE) {
+            Arrays.fill(enteredStamp, 0);
+            searches = 1;
+        }
+    }
+
+    /**
+     * Traps are weighed rather than excluded, so only walls, blocked
+     * coordinates and skipped dead ends cannot be driven through
+     */
+    @Override
+    protected boolean isPassable(int x, int y){
+        return route.isWithinMap(x, y) && !route.isBlocked(x, y) &&
+                !isSkipped(x, y);
+    }
+
+    /**
+     * The cost of driving onto a coordinate
+     */
+    protected int stepCost(int x, int y){
+        return DISTANCE + trapFactor() * route.getTrapCost(x, y);
+    }
+
+    /**
+     * How much the traps cost in the current search
+     */
+    protected int trapFactor(){
+        return avoidTrap ? AVOID_TRAP_FACTOR : 1;
+    }
+}
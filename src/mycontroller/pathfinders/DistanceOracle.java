@@ -0,0 +1,294 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * The distance between every pair of coordinates that are not walls, for
+ * maps small enough to keep them all. The distances only go around the
+ * walls, so they are exact until traps are found, and never too long after.
+ *
+ * The table is worked out once per map and written next to its TMX file,
+ * named after the map and a hash of its wall layout. Later runs on the same
+ * layout map the file into memory instead of working it out again, and the
+ * files of layouts the map no longer has are removed, so each map keeps one
+ * file.
+ * Generated maps have no TMX file, and their tables are only kept in
+ * memory, as are tables whose file could not be written.
+ */
+public class DistanceOracle {
+    /**
+     * The most coordinates that are not walls a map can have to get an
+     * oracle, which keeps the table within 512 KB
+     */
+    public static final int MAX_CELLS = 512;
+
+    /**
+     * The distance between two coordinates that cannot reach each other, or
+     * of a wall
+     */
+    public static final int NOT_CONNECTED = Integer.MAX_VALUE;
+
+    private static final char UNREACHABLE = Character.MAX_VALUE;
+    private static final int NO_RANK = -1;
+
+    private static final String FILE_INFIX = "-distances-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final String MAP_SUFFIX = ".tmx";
+
+    /**
+     * The file starts with the magic number, the width, the height and the
+     * number of coordinates, then the distances row by row
+     */
+    private static final int MAGIC = 0x44495354;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    private int width;
+
+    /**
+     * The position of each cell among the coordinates that are not walls
+     */
+    private int[] rank;
+    private int count;
+
+    private ByteBuffer table;
+
+    private DistanceOracle(boolean[] open, int width) {
+        this.width = width;
+        rank = new int[open.length];
+        for (int cell = 0; cell < open.length; cell++) {
+            rank[cell] = open[cell] ? count++ : NO_RANK;
+        }
+    }
+
+    /**
+     * Opens the oracle of a wall layout, reading it from the file next to
+     * the map or working it out and writing it there.
+     *
+     * @param open whether each cell index is not a wall
+     * @param width the width of the map
+     * @param mapFile the TMX file of the map, or null if it was generated
+     * @return the oracle, or null if the map has more than MAX_CELLS
+     * coordinates that are not walls
+     */
+    public static DistanceOracle open(boolean[] open, int width,
+                                      File mapFile) {
+        DistanceOracle oracle = new DistanceOracle(open, width);
+        if (oracle.count > MAX_CELLS) return null;
+
+        if (mapFile == null) {
+            oracle.table = oracle.build();
+            return oracle;
+        }
+
+        String prefix = mapName(mapFile) + FILE_INFIX;
+        File file = new File(mapFile.getAbsoluteFile().getParentFile(),
+                prefix + hash(open, width) + FILE_SUFFIX);
+        oracle.table = oracle.read(file);
+        if (oracle.table == null) {
+            oracle.table = oracle.build();
+            if (!oracle.write(file, prefix)) return oracle;
+        }
+        removeStale(file, prefix);
+        return oracle;
+    }
+
+    /**
+     * The distance between two cells going around the walls.
+     *
+     * @param from the cell index of one coordinate
+     * @param to the cell index of the other
+     * @return the number of steps, or NOT_CONNECTED
+     */
+    public int distance(int from, int to) {
+        int fromRank = rank[from];
+        int toRank = rank[to];
+        if (fromRank == NO_RANK || toRank == NO_RANK) return NOT_CONNECTED;
+
+        char steps = table.getChar(HEADER_SIZE +
+                Character.BYTES * (fromRank * count + toRank));
+        if (steps == UNREACHABLE) return NOT_CONNECTED;
+        return steps * PathFinder.DISTANCE;
+    }
+
+    /**
+     * Maps the file into memory should it hold the table of this layout.
+     *
+     * @return the table, or null if there is no such file
+     */
+    private ByteBuffer read(File file) {
+        if (!file.isFile()) return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            if (channel.size() != tableSize()) return null;
+
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            if (mapped.getInt(0) != MAGIC ||
+                    mapped.getInt(Integer.BYTES) != width ||
+                    mapped.getInt(2 * Integer.BYTES) != rank.length / width ||
+                    mapped.getInt(3 * Integer.BYTES) != count) {
+                return null;
+            }
+            return mapped;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the table next to the map. The file is written under another
+     * name first and then moved, so other runs never map half a table.
+     *
+     * @return true if the file was written
+     */
+    private boolean write(File file, String prefix) {
+        File partial = null;
+        try {
+            partial = File.createTempFile(prefix, PARTIAL_SUFFIX,
+                    file.getParentFile());
+            try (FileChannel channel = FileChannel.open(partial.toPath(),
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer contents = table.duplicate();
+                contents.rewind();
+                while (contents.hasRemaining()) channel.write(contents);
+            }
+            Files.move(partial.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not write the distances to " + file +
+                    ": " + e.getMessage());
+            if (partial != null) partial.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Removes the files the map has from wall layouts other than its
+     * current one.
+     */
+    private static void removeStale(File file, String prefix) {
+        File[] stale = file.getParentFile().listFiles((directory, name) ->
+                name.startsWith(prefix) && name.endsWith(FILE_SUFFIX) &&
+                        !name.equals(file.getName()));
+        if (stale == null) return;
+        for (File old : stale) {
+            old.delete();
+        }
+    }
+
+    /**
+     * The name of a map, its TMX file name without the extension
+     */
+    private static String mapName(File mapFile) {
+        String name = mapFile.getName();
+        return name.endsWith(MAP_SUFFIX) ?
+                name.substring(0, name.length() - MAP_SUFFIX.length()) : name;
+    }
+
+    /**
+     * Works out the table with a Breadth First Search from every coordinate
+     * that is not a wall.
+     */
+    private ByteBuffer build() {
+        int height = rank.length / width;
+        int[] cells = new int[count];
+        for (int cell = 0; cell < rank.length; cell++) {
+            if (rank[cell] != NO_RANK) cells[rank[cell]] = cell;
+        }
+
+        /**
+         * The neighbours of every coordinate by rank, NO_RANK for walls
+         */
+        int directions = PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+        int[] neighbours = new int[count * directions];
+        for (int i = 0; i < count; i++) {
+            int x = cells[i] % width;
+            int y = cells[i] / width;
+            for (int d = 0; d < directions; d++) {
+                int nextX = x + PathFinder.DIRECTIONS_DELTA[d];
+                int nextY = y +
+                        PathFinder.DIRECTIONS_DELTA[(d+1)%directions];
+                boolean inside = nextX >= 0 && nextX < width && nextY >= 0 &&
+                        nextY < height;
+                neighbours[i * directions + d] =
+                        inside ? rank[nextY * width + nextX] : NO_RANK;
+            }
+        }
+
+        ByteBuffer built = ByteBuffer.allocate((int) tableSize());
+        built.putInt(0, MAGIC);
+        built.putInt(Integer.BYTES, width);
+        built.putInt(2 * Integer.BYTES, height);
+        built.putInt(3 * Integer.BYTES, count);
+
+        char[] steps = new char[count];
+        int[] queue = new int[count];
+        for (int source = 0; source < count; source++) {
+            Arrays.fill(steps, UNREACHABLE);
+            steps[source] = 0;
+            queue[0] = source;
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int current = queue[head++];
+                for (int d = 0; d < directions; d++) {
+                    int next = neighbours[current * directions + d];
+                    if (next != NO_RANK && steps[next] == UNREACHABLE) {
+                        steps[next] = (char) (steps[current] + 1);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            int row = HEADER_SIZE + Character.BYTES * source * count;
+            for (int i = 0; i < count; i++) {
+                built.putChar(row + Character.BYTES * i, steps[i]);
+            }
+        }
+        return built;
+    }
+
+    private long tableSize() {
+        return HEADER_SIZE + (long) Character.BYTES * count * count;
+    }
+
+    /**
+     * A hash of the wall layout, to name its file
+     */
+    private static String hash(boolean[] open, int width) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(2 * Integer.BYTES)
+                    .putInt(width).putInt(open.length / width).array());
+            byte[] bits = new byte[(open.length + Byte.SIZE - 1) / Byte.SIZE];
+            for (int cell = 0; cell < open.length; cell++) {
+                if (open[cell]) bits[cell / Byte.SIZE] |= 1 << cell % Byte.SIZE;
+            }
+
+            StringBuilder name = new StringBuilder();
+            byte[] hashed = digest.digest(bits);
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", hashed[i]));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+import utilities.Coordinate;
+import utilities.CoordinateSet;
+import world.WorldSpatial;
+
+import java.util.Arrays;
+
+/**
+ * The PathFinder that searches hierarchically, for maps too large to search
+ * coordinate by coordinate on every decision. The map is split into the
+ * clusters of a ClusterGraph, and the search first crosses the map from
+ * transition to transition using the distances kept for every cluster. Only
+ * the clusters around the car and the destination's cluster are searched
+ * coordinate by coordinate.
+ *
+ * The path is then refined with A* confined to the clusters the abstract
+ * path went through, falling back to the whole map should that fail, so the
+ * path can always be driven. The nearest coordinate is measured the same
+ * way, searching only inside the clusters of the coordinates asked about.
+ * Those distances go through the transitions, so they can be slightly
+ * longer than the shortest ones.
+ */
+public class HierarchicalPathFinding extends AStarPathFinding{
+    /**
+     * The width and height of a cluster
+     */
+    public static final int CLUSTER_SIZE = 16;
+
+    /**
+     * The abstract graphs with and without the coordinates to avoid
+     */
+    private ClusterGraph avoidingGraph;
+    private ClusterGraph graph;
+
+    private CellPriorityQueue open;
+
+    /**
+     * The queue of a search to the end of the abstract graph, which has no
+     * heuristic, so the distances come off it in order
+     */
+    private BucketQueue buckets;
+    private boolean searchingAll;
+
+    /**
+     * The first coordinates the car can reach
+     */
+    private int[] initialCells = new int[2];
+
+    /**
+     * The car's cell and cluster. The car's cluster and the ones next to it
+     * are searched coordinate by coordinate, as a path may not go through
+     * the car's coordinate, even when it is a transition.
+     */
+    private int source;
+    private int sourceClusterX;
+    private int sourceClusterY;
+
+    /**
+     * The distances to the destination inside its cluster
+     */
+    private int[] goalDistance;
+    private int[] goalStamp;
+    private int goalEpoch;
+    private int[] goalQueue;
+    private int goalCluster;
+
+    /**
+     * The clusters the refinement is confined to, marked with the current
+     * corridor number, and those measured for the nearest coordinate
+     */
+    private int[] corridor;
+    private int corridorEpoch;
+    private boolean confined;
+
+    /**
+     * Instantiates a new hierarchical path finding.
+     *
+     * @param route the route
+     */
+    public HierarchicalPathFinding(Route route) {
+        super(route);
+        avoidingGraph = new ClusterGraph(route, CLUSTER_SIZE, true);
+        graph = new ClusterGraph(route, CLUSTER_SIZE, false);
+        open = new CellPriorityQueue(route.getWidth() + route.getHeight());
+        buckets = new BucketQueue(route.getWidth() + route.getHeight());
+
+        int cells = route.getWidth() * route.getHeight();
+        goalDistance = new int[cells];
+        goalStamp = new int[cells];
+        goalQueue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        corridor = new int[graph.getClusterCount()];
+    }
+
+    /**
+     * Searches the abstract graph for the destination, then refines the
+     * path inside the clusters it went through. Without a destination every
+     * coordinate is searched with A*.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     * @param destination the destination
+     */
+    @Override
+    protected void search(Coordinate currentCoordinate,
+                          WorldSpatial.Direction orientation,
+                          Coordinate destination){
+        int target = cellOf(destination);
+        if (target == NO_PARENT) {
+            super.search(currentCoordinate, orientation, destination);
+            return;
+        }
+
+        ClusterGraph clusters = currentGraph();
+        searchClusters(currentCoordinate, orientation, target, clusters);
+        if (distance(target) == NOT_REACHED) return;
+
+        /**
+         * Confining A* to the clusters along the abstract path
+         */
+        markCorridor(target, clusters);
+        confined = true;
+        super.search(currentCoordinate, orientation, destination);
+        confined = false;
+
+        if (distance(target) == NOT_REACHED) {
+            super.search(currentCoordinate, orientation, destination);
+        }
+    }
+
+    /**
+     * Searches the abstract graph to the end, then measures the clusters of
+     * the coordinates that are not transitions or around the car, leaving
+     * out the ones Route knows to be in another part of the map.
+     */
+    @Override
+    protected void measureDistances(CoordinateSet coordinates,
+                                    Coordinate currentCoordinate,
+                                    WorldSpatial.Direction orientation){
+        ClusterGraph clusters = currentGraph();
+        searchClusters(currentCoordinate, orientation, NO_PARENT, clusters);
+
+        nextCorridor();
+        int width = route.getWidth();
+        for (int i = 0; i < coordinates.size(); i++) {
+            int x = coordinates.x(i);
+            int y = coordinates.y(i);
+            if (!route.isWithinMap(x, y) ||
+                    distance(y * width + x) != NOT_REACHED ||
+                    !route.isConnected(currentCoordinate.x,
+                            currentCoordinate.y, x, y)) continue;
+
+            int cluster = clusters.clusterOf(x, y);
+            if (corridor[cluster] == corridorEpoch) continue;
+            corridor[cluster] = corridorEpoch;
+            measureCluster(cluster, clusters);
+        }
+    }
+
+    /**
+     * Dijkstra's Algorithm over the coordinates around the car, the
+     * transitions and, with a target, the target. Around the car it moves
+     * one coordinate at a time, elsewhere from transition to transition.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     * @param target the cell index of the destination, or NO_PARENT to
+     *               search every transition
+     * @param clusters the abstract graph
+     */
+    private void searchClusters(Coordinate currentCoordinate,
+                                WorldSpatial.Direction orientation,
+                                int target, ClusterGraph clusters){
+        int width = route.getWidth();
+        source = cellOf(currentCoordinate);
+        startSearch(source);
+        open.clear();
+        buckets.reset(CLUSTER_SIZE * CLUSTER_SIZE);
+        searchingAll = target == NO_PARENT;
+
+        /**
+         * A car must move one coordinate forward or backward at first, so
+         * the search starts from those coordinates
+         */
+        int count = seedInitialCoordinates(currentCoordinate, orientation,
+                initialCells);
+        sourceClusterX = currentCoordinate.x / CLUSTER_SIZE;
+        sourceClusterY = currentCoordinate.y / CLUSTER_SIZE;
+        for (int i = 0; i < count; i++) {
+            push(initialCells[i], DISTANCE, target);
+        }
+
+        goalCluster = -1;
+        if (target != NO_PARENT) {
+            if (!clusters.isPassable(target % width, target / width)) return;
+            measureGoal(target, clusters);
+        }
+
+        while (searchingAll ? !buckets.isEmpty() : !open.isEmpty()) {
+            int cell = pollCurrent(target);
+
+            /**
+             * Skipping entries left behind after a shorter way to the
+             * coordinate was found
+             */
+            if (cell == NO_PARENT) continue;
+            int cellDistance = distance(cell);
+
+            /**
+             * Reaching a destination means that the algorithm should stop
+             */
+            if (cell == target) return;
+
+            int x = cell % width;
+            int y = cell / width;
+            int cluster = clusters.clusterOf(x, y);
+            boolean aroundCar = isAroundCar(x, y);
+
+            /**
+             * The neighbouring coordinates, around the car all of them and
+             * elsewhere only the transitions into other clusters
+             */
+            for (int i = 0; i < NUM_OF_POSSIBLE_DIRECTION; i++) {
+                int nextX = x + DIRECTIONS_DELTA[i];
+                int nextY = y +
+                        DIRECTIONS_DELTA[(i+1)%NUM_OF_POSSIBLE_DIRECTION];
+                if (!clusters.isPassable(nextX, nextY)) continue;
+
+                int next = nextY * width + nextX;
+                int nextCluster = clusters.clusterOf(nextX, nextY);
+                boolean follow = nextCluster == cluster ? aroundCar :
+                        isAroundCar(nextX, nextY) ||
+                                clusters.isTransition(next);
+                if (follow) {
+                    relax(next, cellDistance + DISTANCE, cell, target);
+                }
+            }
+            if (aroundCar) continue;
+
+            /**
+             * Elsewhere, across the cluster to its other transitions and, in
+             * the destination's cluster, to the destination
+             */
+            int[] transitions = clusters.getTransitions(cluster);
+            int from = indexOf(transitions, cell);
+            for (int i = 0; from >= 0 && i < transitions.length; i++) {
+                int across = clusters.getDistance(cluster, from, i);
+                if (i == from || across == ClusterGraph.NOT_CONNECTED) {
+                    continue;
+                }
+                relax(transitions[i], cellDistance + across, cell, target);
+            }
+            if (cluster == goalCluster && goalStamp[cell] == goalEpoch) {
+                relax(target, cellDistance + goalDistance[cell], cell,
+                        target);
+            }
+        }
+    }
+
+    /**
+     * Dijkstra's Algorithm inside one cluster, starting from its transitions
+     * at the distances the abstract search gave them.
+     */
+    private void measureCluster(int cluster, ClusterGraph clusters){
+        int width = route.getWidth();
+        searchingAll = false;
+        open.clear();
+        for (int cell : clusters.getTransitions(cluster)) {
+            int cellDistance = distance(cell);
+            if (cellDistance != NOT_REACHED) {
+                open.push(priority(cell, cellDistance, NO_PARENT, width),
+                        cell);
+            }
+        }
+
+        while (!open.isEmpty()) {
+            long priority = open.peekPriority();
+            int cell = open.poll();
+            int cellDistance = distance(cell);
+            if (priority != priority(cell, cellDistance, NO_PARENT, width)) {
+                continue;
+            }
+
+            int x = cell % width;
+            int y = cell / width;
+            for (int i = 0; i < NUM_OF_POSSIBLE_DIRECTION; i++) {
+                int nextX = x + DIRECTIONS_DELTA[i];
+                int nextY = y +
+                        DIRECTIONS_DELTA[(i+1)%NUM_OF_POSSIBLE_DIRECTION];
+                if (clusters.isInCluster(cluster, nextX, nextY) &&
+                        clusters.isPassable(nextX, nextY)) {
+                    relax(nextY * width + nextX, cellDistance + DISTANCE,
+                            cell, NO_PARENT);
+                }
+            }
+        }
+    }
+
+    /**
+     * Breadth first search from the destination inside its cluster
+     */
+    private void measureGoal(int target, ClusterGraph clusters){
+        goalEpoch++;
+        if (goalEpoch == Integer.MAX_VALUE) {
+            Arrays.fill(goalStamp, 0);
+            goalEpoch = 1;
+        }
+
+        int width = route.getWidth();
+        goalCluster = clusters.clusterOf(target % width, target / width);
+        int head = 0;
+        int tail = 0;
+        goalQueue[tail++] = target;
+        goalStamp[target] = goalEpoch;
+        goalDistance[target] = 0;
+
+        while (head < tail) {
+            int cell = goalQueue[head++];
+            int x = cell % width;
+            int y = cell / width;
+            for (int i = 0; i < NUM_OF_POSSIBLE_DIRECTION; i++) {
+                int nextX = x + DIRECTIONS_DELTA[i];
+                int nextY = y +
+                        DIRECTIONS_DELTA[(i+1)%NUM_OF_POSSIBLE_DIRECTION];
+                if (!clusters.isInCluster(goalCluster, nextX, nextY) ||
+                        !clusters.isPassable(nextX, nextY)) continue;
+
+                int next = nextY * width + nextX;
+                if (goalStamp[next] != goalEpoch) {
+                    goalStamp[next] = goalEpoch;
+                    goalDistance[next] = goalDistance[cell] + DISTANCE;
+                    goalQueue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the clusters the abstract path went through and the ones around
+     * the car, for the refinement to be confined to.
+     */
+    private void markCorridor(int target, ClusterGraph clusters){
+        nextCorridor();
+        int width = route.getWidth();
+        for (int clusterY = sourceClusterY - 1; clusterY <= sourceClusterY + 1;
+             clusterY++) {
+            for (int clusterX = sourceClusterX - 1;
+                 clusterX <= sourceClusterX + 1; clusterX++) {
+                int x = clusterX * CLUSTER_SIZE;
+                int y = clusterY * CLUSTER_SIZE;
+                if (route.isWithinMap(x, y)) {
+                    corridor[clusters.clusterOf(x, y)] = corridorEpoch;
+                }
+            }
+        }
+        for (int cell = target; cell != source; cell = parent(cell)) {
+            corridor[clusters.clusterOf(cell % width, cell / width)] =
+                    corridorEpoch;
+        }
+    }
+
+    private void nextCorridor(){
+        corridorEpoch++;
+        if (corridorEpoch == Integer.MAX_VALUE) {
+            Arrays.fill(corridor, 0);
+            corridorEpoch = 1;
+        }
+    }
+
+    /**
+     * While refining, only the coordinates in the corridor can be driven
+     * through
+     */
+    @Override
+    protected boolean isPassable(int x, int y){
+        if (!super.isPassable(x, y)) return false;
+        return !confined ||
+                corridor[graph.clusterOf(x, y)] == corridorEpoch;
+    }
+
+    private void relax(int next, int nextDistance, int from, int target){
+        if (nextDistance < distance(next)) {
+            reach(next, nextDistance, from);
+            push(next, nextDistance, target);
+        }
+    }
+
+    private void push(int cell, int cellDistance, int target){
+        if (searchingAll) {
+            buckets.push(cellDistance, cell);
+        } else {
+            open.push(priority(cell, cellDistance, target, route.getWidth()),
+                    cell);
+        }
+    }
+
+    /**
+     * Takes the next cell off the queue in use
+     *
+     * @return the cell, or NO_PARENT if the entry was left behind after a
+     * shorter way to it was found
+     */
+    private int pollCurrent(int target){
+        if (searchingAll) {
+            int cell = buckets.poll();
+            return buckets.lastPriority() == distance(cell) ? cell :
+                    NO_PARENT;
+        }
+        long priority = open.peekPriority();
+        int cell = open.poll();
+        return priority == priority(cell, distance(cell), target,
+                route.getWidth()) ? cell : NO_PARENT;
+    }
+
+    /**
+     * The abstract graph for the current trap setting, brought up to date
+     * with the Route
+     */
+    private ClusterGraph currentGraph(){
+        ClusterGraph clusters = avoidTrap ? avoidingGraph : graph;
+        clusters.refresh();
+        return clusters;
+    }
+
+    /**
+     * Whether a coordinate is in the car's cluster or one next to it
+     */
+    private boolean isAroundCar(int x, int y){
+        return Math.abs(x / CLUSTER_SIZE - sourceClusterX) <= 1 &&
+                Math.abs(y / CLUSTER_SIZE - sourceClusterY) <= 1;
+    }
+
+    private static int indexOf(int[] cells, int cell){
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == cell) return i;
+        }
+        return -1;
+    }
+}
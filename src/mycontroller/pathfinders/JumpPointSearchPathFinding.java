@@ -0,0 +1,286 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+import utilities.Coordinate;
+import world.WorldSpatial;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The PathFinder that uses Jump Point Search on the four connected grid.
+ * Among the many equally short paths across an open area, only the ones that
+ * go vertically first and turn horizontally are kept, so instead of putting
+ * every coordinate on the queue the search jumps along straight lines and
+ * only stops at the destination and at the coordinates where a wall forces
+ * a turn. Every jump is one straight segment of the path.
+ *
+ * Jump points are queued with the priority of AStarPathFinding, so among
+ * equal estimates the deeper one comes first and a run across open road is
+ * followed to the destination before the search fans out behind it.
+ *
+ * The paths are as short as the ones found by Breadth First Search. Without
+ * a destination there is nothing to jump to, so A* with a zero heuristic
+ * gives every coordinate its distance instead.
+ */
+public class JumpPointSearchPathFinding extends AStarPathFinding{
+    /**
+     * To mark a jump point as being free to head in any direction
+     */
+    private static final int ANY_DIRECTION = -1;
+
+    private CellPriorityQueue open;
+
+    /**
+     * The index of the direction each jump point was jumped to in, valid
+     * alongside its distance
+     */
+    private int[] arrivedBy;
+
+    private int source;
+    private int target;
+
+    /**
+     * The first coordinates the car can reach
+     */
+    private int[] initialCells = new int[2];
+
+    /**
+     * Instantiates a new Jump Point Search path finding.
+     *
+     * @param route the route
+     */
+    public JumpPointSearchPathFinding(Route route) {
+        super(route);
+        open = new CellPriorityQueue(route.getWidth() + route.getHeight());
+        arrivedBy = new int[route.getWidth() * route.getHeight()];
+    }
+
+    /**
+     * Runs A* over the jump points from the current coordinate until the
+     * destination is taken off the queue.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation the orientation of the car
+     * @param destination the destination
+     */
+    @Override
+    protected void search(Coordinate currentCoordinate,
+                          WorldSpatial.Direction orientation,
+                          Coordinate destination){
+        target = cellOf(destination);
+        if (target == NO_PARENT) {
+            super.search(currentCoordinate, orientation, destination);
+            return;
+        }
+
+        int width = route.getWidth();
+        source = cellOf(currentCoordinate);
+        startSearch(source);
+        open.clear();
+
+        /**
+         * A car must move one coordinate forward or backward at first, and
+         * can head anywhere from there
+         */
+        int count = seedInitialCoordinates(currentCoordinate, orientation,
+                initialCells);
+        for (int i = 0; i < count; i++) {
+            arrivedBy[initialCells[i]] = ANY_DIRECTION;
+            open.push(priority(initialCells[i], DISTANCE, target, width),
+                    initialCells[i]);
+        }
+
+        while (!open.isEmpty()) {
+            long priority = open.peekPriority();
+            int cell = open.poll();
+            int cellDistance = distance(cell);
+
+            /**
+             * Skipping entries left behind after a shorter way to the
+             * coordinate was found
+             */
+            if (priority != priority(cell, cellDistance, target, width)) {
+                continue;
+            }
+
+            /**
+             * Reaching a destination means that the algorithm should stop
+             */
+            if (cell == target) return;
+
+            for (int i = 0; i < NUM_OF_POSSIBLE_DIRECTION; i++) {
+                if (!isWorthJumping(cell, arrivedBy[cell], i)) continue;
+
+                int jumpPoint = jump(cell, i);
+                if (jumpPoint == NO_PARENT) continue;
+
+                /**
+                 * Update the distance values should it be faster
+                 */
+                int nextDistance = cellDistance +
+                        DISTANCE * steps(cell, jumpPoint, width);
+                if (nextDistance < distance(jumpPoint)) {
+                    reach(jumpPoint, nextDistance, cell);
+                    arrivedBy[jumpPoint] = i;
+                    open.push(priority(jumpPoint, nextDistance, target,
+                            width), jumpPoint);
+                }
+
+                /**
+                 * A jump point reached as fast from another direction has to
+                 * be left in the directions of both
+                 */
+                else if (nextDistance == distance(jumpPoint) &&
+                        arrivedBy[jumpPoint] != i &&
+                        arrivedBy[jumpPoint] != ANY_DIRECTION) {
+                    arrivedBy[jumpPoint] = ANY_DIRECTION;
+                    open.push(priority(jumpPoint, nextDistance, target,
+                            width), jumpPoint);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether a jump point should be left in a direction: straight on, to
+     * either side after a vertical jump, and vertically after a horizontal
+     * jump only where a wall forces the turn
+     */
+    private boolean isWorthJumping(int cell, int arrived, int direction){
+        if (arrived == ANY_DIRECTION || direction == arrived) return true;
+        if (direction == (arrived + 2) % NUM_OF_POSSIBLE_DIRECTION) {
+            return false;
+        }
+        if (!isHorizontal(arrived)) return true;
+
+        int width = route.getWidth();
+        int x = cell % width;
+        int y = cell / width;
+        return isForced(x, y + deltaY(direction),
+                x - deltaX(arrived), y + deltaY(direction));
+    }
+
+    /**
+     * Moves from a cell in a direction until a jump point is found.
+     *
+     * @param cell the cell to jump from
+     * @param direction the index into DIRECTIONS_DELTA
+     * @return the jump point, or NO_PARENT if a wall comes first
+     */
+    private int jump(int cell, int direction){
+        int width = route.getWidth();
+        int dx = deltaX(direction);
+        int dy = deltaY(direction);
+        int x = cell % width;
+        int y = cell / width;
+
+        while (true) {
+            x += dx;
+            y += dy;
+            if (!isOpen(x, y)) return NO_PARENT;
+
+            int next = y * width + x;
+            if (next == target) return next;
+
+            if (dy == 0) {
+
+                /**
+                 * A horizontal jump stops where it may have to turn
+                 */
+                if (isForced(x, y + 1, x - dx, y + 1) ||
+                        isForced(x, y - 1, x - dx, y - 1)) {
+                    return next;
+                }
+            } else {
+
+                /**
+                 * A vertical jump stops where it may have to turn, or where
+                 * a horizontal jump from it would find something
+                 */
+                if (isForced(x + 1, y, x + 1, y - dy) ||
+                        isForced(x - 1, y, x - 1, y - dy)) {
+                    return next;
+                }
+                if (jump(next, 0) != NO_PARENT || jump(next, 2) != NO_PARENT) {
+                    return next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether a coordinate to the side of a jump can be driven through while
+     * the one behind it cannot, so the shortest way onto it turns there
+     */
+    private boolean isForced(int sideX, int sideY, int behindX, int behindY){
+        return isOpen(sideX, sideY) && !isOpen(behindX, behindY);
+    }
+
+    /**
+     * Whether a jump may go through a coordinate. The car's coordinate is
+     * already reached, so jumps treat it as a wall.
+     */
+    private boolean isOpen(int x, int y){
+        return isPassable(x, y) && y * route.getWidth() + x != source;
+    }
+
+    /**
+     * Converting the jump points recorded by the search into a list of
+     * coordinates, filling in the straight segments between them
+     */
+    @Override
+    protected List<Coordinate> backtrack(Coordinate startingCoordinate,
+                                         Coordinate destination){
+        int width = route.getWidth();
+        int start = startingCoordinate.y * width + startingCoordinate.x;
+        int destinationCell = destination.y * width + destination.x;
+        Coordinate[] path =
+                new Coordinate[distance(destinationCell) / DISTANCE + 1];
+
+        int i = path.length - 1;
+        for (int jumpPoint = destinationCell; jumpPoint != start;
+             jumpPoint = parent(jumpPoint)) {
+            int from = parent(jumpPoint);
+            int step = stepTowards(jumpPoint, from, width);
+            for (int cell = jumpPoint; cell != from; cell += step) {
+                path[i--] = new Coordinate(cell % width, cell / width);
+            }
+        }
+        path[0] = startingCoordinate;
+
+        return Arrays.asList(path);
+    }
+
+    /**
+     * The number of steps in a straight line between two cells
+     */
+    private static int steps(int from, int to, int width){
+        return Math.abs(from % width - to % width) +
+                Math.abs(from / width - to / width);
+    }
+
+    /**
+     * The change in cell index of one step from a cell towards another in
+     * the same row or column
+     */
+    private static int stepTowards(int from, int to, int width){
+        if (from / width == to / width) return to < from ? -1 : 1;
+        return to < from ? -width : width;
+    }
+
+    private static boolean isHorizontal(int direction){
+        return direction % 2 == 0;
+    }
+
+    private static int deltaX(int direction){
+        return DIRECTIONS_DELTA[direction];
+    }
+
+    private static int deltaY(int direction){
+        return DIRECTIONS_DELTA[(direction+1)%NUM_OF_POSSIBLE_DIRECTION];
+    }
+}
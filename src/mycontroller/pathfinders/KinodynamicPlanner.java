@@ -0,0 +1,365 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Commands;
+import mycontroller.Route;
+import tiles.MapTile;
+import tiles.TrapTile;
+import utilities.Coordinate;
+import utilities.CoordinateMap;
+import world.WorldSpatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The planner that searches the states the car can actually be in, its
+ * coordinate, orientation and velocity, and returns the commands that take
+ * it to a destination in the fewest updates. Every command takes one update
+ * plus the cost of the trap the car ends up on, so Dijkstra's Algorithm over
+ * the states finds the quickest plan that does not give up too much health.
+ *
+ * The car is simulated the way the simulation moves it: steering first,
+ * which needs the car to be moving, then acceleration, then one coordinate
+ * of movement for a velocity of 1 or -1. Plans never drive into a wall, and
+ * traps are weighed by their cost rather than excluded.
+ */
+public class KinodynamicPlanner {
+    /**
+     * The velocities the car can have, the car tops out at one coordinate
+     * per update in either direction
+     */
+    private static final int MIN_VELOCITY = -1;
+    private static final int MAX_VELOCITY = 1;
+    private static final int NUM_OF_VELOCITIES =
+            MAX_VELOCITY - MIN_VELOCITY + 1;
+
+    private static final int NUM_OF_ORIENTATIONS =
+            WorldSpatial.Direction.values().length;
+
+    /**
+     * The commands tried from every state, in order of preference among
+     * equally quick plans. Braking is the same as accelerating against the
+     * velocity, so it is not tried separately.
+     */
+    private static final Commands[] COMMANDS = {Commands.NONE,
+            Commands.FORWARD, Commands.LEFT, Commands.RIGHT, Commands.REVERSE};
+
+    /**
+     * To mark a state as having no parent
+     */
+    private static final int NO_PARENT = -1;
+
+    /**
+     * The plan returned when the destination cannot be reached
+     */
+    public static final Plan UNREACHABLE = null;
+
+    private Route route;
+    private CoordinateMap<MapTile> map;
+
+    /**
+     * Dictates whether to avoid the traps or not
+     */
+    private boolean avoidTrap;
+
+    /**
+     * Per state scratch arrays, only valid when the visited stamp equals the
+     * current epoch
+     */
+    private int[] visited;
+    private int[] cost;
+    private int[] parent;
+    private byte[] command;
+    private int epoch;
+
+    /**
+     * The search queue of states
+     */
+    private BucketQueue open;
+
+    /**
+     * The outcome of the last step, set by step
+     */
+    private int steppedX, steppedY, steppedOrientation, steppedVelocity;
+
+    /**
+     * A sequence of commands, one per update, and the coordinate the car is
+     * expected to be on after each of them.
+     */
+    public static class Plan {
+        private final List<Commands> commands;
+        private final List<Coordinate> positions;
+
+        private Plan(List<Commands> commands, List<Coordinate> positions) {
+            this.commands = commands;
+            this.positions = positions;
+        }
+
+        /**
+         * Gets the commands.
+         *
+         * @return the commands, in the order to give them
+         */
+        public List<Commands> getCommands() {
+            return commands;
+        }
+
+        /**
+         * Gets the positions.
+         *
+         * @return the coordinate of the car after each command
+         */
+        public List<Coordinate> getPositions() {
+            return positions;
+        }
+    }
+
+    /**
+     * Instantiates a new Kinodynamic planner.
+     *
+     * @param route the route
+     * @param map   the map, used to tell where the car cannot turn or
+     *              accelerate
+     */
+    public KinodynamicPlanner(Route route, CoordinateMap<MapTile> map) {
+        this.route = route;
+        this.map = map;
+        int states = route.getWidth() * route.getHeight() *
+                NUM_OF_ORIENTATIONS * NUM_OF_VELOCITIES;
+        visited = new int[states];
+        cost = new int[states];
+        parent = new int[states];
+        command = new byte[states];
+        open = new BucketQueue(states);
+    }
+
+    /**
+     * Plans the quickest way from the car's state to the destination.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param orientation       the orientation of the car
+     * @param velocity          the velocity of the car
+     * @param destination       the destination
+     * @param avoidTrap         whether traps should be avoided if possible
+     * @return the plan, or UNREACHABLE
+     */
+    public Plan plan(Coordinate currentCoordinate,
+                     WorldSpatial.Direction orientation, int velocity,
+                     Coordinate destination, boolean avoidTrap) {
+        if (!route.isWithinMap(destination.x, destination.y) ||
+                !route.isConnected(currentCoordinate.x, currentCoordinate.y,
+                        destination.x, destination.y)) {
+            return UNREACHABLE;
+        }
+
+        int start = state(currentCoordinate.x, currentCoordinate.y,
+                orientation.ordinal(), clampVelocity(velocity));
+
+        /**
+         * Traps are weighed instead of excluded, so one search is enough
+         */
+        this.avoidTrap = avoidTrap;
+        int goal = search(start, destination);
+        if (goal == NO_PARENT) return UNREACHABLE;
+
+        return backtrack(start, goal);
+    }
+
+    /**
+     * Dijkstra's Algorithm over the states until a state on the destination
+     * is taken off the queue.
+     *
+     * @return the cheapest state on the destination, or NO_PARENT
+     */
+    private int search(int start, Coordinate destination) {
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
+        visited[start] = epoch;
+        cost[start] = 0;
+        parent[start] = NO_PARENT;
+
+        int target = cellOf(destination.x, destination.y);
+        open.reset(1 + trapFactor() * route.getMaxTrapCost());
+        open.push(0, start);
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            int currentCost = open.lastPriority();
+
+            /**
+             * Skipping entries left behind after a cheaper way to the state
+             * was found
+             */
+            if (currentCost != cost[current]) continue;
+
+            if (cellOf(current) == target) return current;
+
+            for (int i = 0; i < COMMANDS.length; i++) {
+                if (!step(current, COMMANDS[i])) continue;
+
+                int next = state(steppedX, steppedY, steppedOrientation,
+                        steppedVelocity);
+
+                /**
+                 * Every command takes one update, and the trap the car is on
+                 * afterwards applies to it during that update
+                 */
+                int nextCost = currentCost + 1 +
+                        trapFactor() * route.getTrapCost(steppedX, steppedY);
+                if (visited[next] == epoch && cost[next] <= nextCost) {
+                    continue;
+                }
+
+                visited[next] = epoch;
+                cost[next] = nextCost;
+                parent[next] = current;
+                command[next] = (byte) i;
+                open.push(nextCost, next);
+            }
+        }
+
+        return NO_PARENT;
+    }
+
+    private int trapFactor() {
+        return avoidTrap ? DijkstraPathFinding.AVOID_TRAP_FACTOR : 1;
+    }
+
+    /**
+     * Simulates one update of the car from a state with a command, leaving
+     * the outcome in the stepped fields.
+     *
+     * @return false if the car would hit something it should not
+     */
+    private boolean step(int state, Commands nextCommand) {
+        int velocity = state % NUM_OF_VELOCITIES + MIN_VELOCITY;
+        int orientation = (state / NUM_OF_VELOCITIES) % NUM_OF_ORIENTATIONS;
+        int cell = state / (NUM_OF_VELOCITIES * NUM_OF_ORIENTATIONS);
+        int x = cell % route.getWidth();
+        int y = cell / route.getWidth();
+
+        MapTile tile = map.get(x, y);
+        boolean onTrap = tile != null && tile.isType(MapTile.Type.TRAP);
+        boolean canTurn = !onTrap || ((TrapTile) tile).canTurn();
+        boolean canAccelerate = !onTrap || ((TrapTile) tile).canAccelerate();
+
+        /**
+         * Steering, which only happens while moving, and turns the other way
+         * when reversing
+         */
+        WorldSpatial.Direction direction =
+                WorldSpatial.Direction.values()[orientation];
+        if (velocity != 0 && canTurn && (nextCommand == Commands.LEFT ||
+                nextCommand == Commands.RIGHT)) {
+            WorldSpatial.RelativeDirection turn =
+                    nextCommand == Commands.LEFT ?
+                            WorldSpatial.RelativeDirection.LEFT :
+                            WorldSpatial.RelativeDirection.RIGHT;
+            if (velocity < 0) turn = WorldSpatial.opposite(turn);
+            direction = WorldSpatial.changeDirection(direction, turn);
+        }
+
+        /**
+         * Acceleration
+         */
+        if (canAccelerate && nextCommand == Commands.FORWARD) {
+            velocity = Math.min(velocity + 1, MAX_VELOCITY);
+        } else if (canAccelerate && nextCommand == Commands.REVERSE) {
+            velocity = Math.max(velocity - 1, MIN_VELOCITY);
+        }
+
+        /**
+         * Movement
+         */
+        if (velocity != 0) {
+            WorldSpatial.Direction heading = velocity > 0 ? direction :
+                    WorldSpatial.reverseDirection(direction);
+            x += deltaX(heading);
+            y += deltaY(heading);
+            if (!isPassable(x, y)) return false;
+        }
+
+        steppedX = x;
+        steppedY = y;
+        steppedOrientation = direction.ordinal();
+        steppedVelocity = velocity;
+        return true;
+    }
+
+    /**
+     * Converting the parents recorded by the search into a plan
+     */
+    private Plan backtrack(int start, int goal) {
+        List<Commands> commands = new ArrayList<>();
+        List<Coordinate> positions = new ArrayList<>();
+
+        for (int current = goal; current != start; current = parent[current]) {
+            commands.add(COMMANDS[command[current]]);
+            int cell = cellOf(current);
+            positions.add(new Coordinate(cell % route.getWidth(),
+                    cell / route.getWidth()));
+        }
+
+        /**
+         * as it was backtracked, the lists have to be reversed
+         */
+        Collections.reverse(commands);
+        Collections.reverse(positions);
+        return new Plan(commands, positions);
+    }
+
+    /**
+     * Whether the car may drive onto a coordinate: it is within the map and
+     * not blocked
+     */
+    private boolean isPassable(int x, int y) {
+        return route.isWithinMap(x, y) && !route.isBlocked(x, y);
+    }
+
+    private int state(int x, int y, int orientation, int velocity) {
+        return (cellOf(x, y) * NUM_OF_ORIENTATIONS + orientation) *
+                NUM_OF_VELOCITIES + velocity - MIN_VELOCITY;
+    }
+
+    private int cellOf(int x, int y) {
+        return y * route.getWidth() + x;
+    }
+
+    private int cellOf(int state) {
+        return state / (NUM_OF_VELOCITIES * NUM_OF_ORIENTATIONS);
+    }
+
+    private static int clampVelocity(int velocity) {
+        return Math.max(MIN_VELOCITY, Math.min(MAX_VELOCITY, velocity));
+    }
+
+    private static int deltaX(WorldSpatial.Direction direction) {
+        switch (direction) {
+            case EAST:
+                return 1;
+            case WEST:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+
+    private static int deltaY(WorldSpatial.Direction direction) {
+        switch (direction) {
+            case NORTH:
+                return 1;
+            case SOUTH:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+}
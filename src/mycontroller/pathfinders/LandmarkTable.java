@@ -0,0 +1,253 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.Route;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * The distances from a few landmarks to every coordinate, for the ALT
+ * heuristic. For any landmark, the distance between two coordinates is at
+ * least the difference of their distances from the landmark, which is a far
+ * better estimate than the Manhattan distance where walls make the way
+ * around long.
+ *
+ * On maps small enough for a DistanceOracle, the exact distances around the
+ * walls are used instead of the landmarks.
+ *
+ * The tables are worked out from the walls the Route starts with, on a
+ * thread of their own, while the car starts. Coordinates found to be blocked
+ * or to be avoided later only make the real distances longer, so the
+ * estimates never overestimate. Until the thread is done the estimates are
+ * the Manhattan distances, so searches do not have to wait for it. A Route
+ * has one table, shared by all its pathfinders.
+ */
+public class LandmarkTable {
+    /**
+     * The number of landmarks
+     */
+    public static final int LANDMARK_COUNT = 8;
+
+    private static final int NOT_REACHED = Integer.MAX_VALUE;
+
+    private int width;
+
+    /**
+     * The coordinates that are not walls, as cell indices, copied when the
+     * table is instantiated so the thread never reads the Route
+     */
+    private boolean[] open;
+
+    /**
+     * The TMX file the map was loaded from, which the oracle is kept next to
+     */
+    private File mapFile;
+
+    /**
+     * The distance from each landmark to every cell
+     */
+    private int[][] distances;
+    private int landmarkCount;
+
+    /**
+     * The distances between every pair of coordinates, on small maps
+     */
+    private DistanceOracle oracle;
+
+    private Thread builder;
+    private volatile boolean built;
+    private boolean ready;
+
+    /**
+     * The target the distances below were copied for
+     */
+    private int cachedTarget = -1;
+    private int[] targetDistances = new int[LANDMARK_COUNT];
+
+    /**
+     * Instantiates a new landmark table and starts working it out.
+     *
+     * @param route the route, before anything other than its walls is
+     *              blocked
+     */
+    public LandmarkTable(Route route) {
+        width = route.getWidth();
+        mapFile = route.getMapFile();
+        open = new boolean[width * route.getHeight()];
+        for (int y = 0; y < route.getHeight(); y++) {
+            for (int x = 0; x < width; x++) {
+                open[y * width + x] = !route.isBlocked(x, y);
+            }
+        }
+
+        builder = new Thread(this::build, "landmarks");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Checks whether the tables have been worked out, without waiting for
+     * them. Once true, it stays true.
+     *
+     * @return true if the tables can be used
+     */
+    public boolean isReady() {
+        if (builder != null && built) {
+            builder = null;
+            ready = oracle != null || landmarkCount > 0;
+        }
+        return ready;
+    }
+
+    /**
+     * Waits for the tables to be worked out.
+     *
+     * @return true if the tables can be used
+     */
+    public boolean await() {
+        if (builder != null) {
+            try {
+                builder.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return isReady();
+    }
+
+    /**
+     * A lower bound of the distance between two cells: the distance around
+     * the walls on small maps, otherwise the larger of the Manhattan distance
+     * and the landmark estimates. The tables are only used once isReady or
+     * await has returned true.
+     *
+     * @param cell the cell index
+     * @param target the cell index of the target
+     * @return the lower bound
+     */
+    public int lowerBound(int cell, int target) {
+        int bound = Math.abs(cell % width - target % width) +
+                Math.abs(cell / width - target / width);
+        if (!ready) return bound;
+
+        if (oracle != null) {
+            int exact = oracle.distance(cell, target);
+            return exact == DistanceOracle.NOT_CONNECTED ? bound : exact;
+        }
+
+        if (target != cachedTarget) {
+            for (int i = 0; i < landmarkCount; i++) {
+                targetDistances[i] = distances[i][target];
+            }
+            cachedTarget = target;
+        }
+
+        for (int i = 0; i < landmarkCount; i++) {
+            int from = distances[i][cell];
+            int to = targetDistances[i];
+
+            /**
+             * A landmark that cannot reach both says nothing about them
+             */
+            if (from == NOT_REACHED || to == NOT_REACHED) continue;
+            bound = Math.max(bound, Math.abs(from - to));
+        }
+        return bound;
+    }
+
+    /**
+     * Opens the oracle on small maps, otherwise picks the landmarks, then
+     * lets the searches know the tables are ready.
+     */
+    private void build() {
+        try {
+            oracle = DistanceOracle.open(open, width, mapFile);
+            if (oracle == null) pickLandmarks();
+        } finally {
+            built = true;
+        }
+    }
+
+    /**
+     * Picks the landmarks one after the other, each the coordinate furthest
+     * from the ones already picked, starting from the coordinate furthest
+     * from the first open one. Coordinates no landmark reaches come first,
+     * so every part of the map that is cut off gets a landmark of its own.
+     */
+    private void pickLandmarks() {
+
+        int cells = open.length;
+        int[] queue = new int[cells];
+        int[] closest = new int[cells];
+        Arrays.fill(closest, NOT_REACHED);
+        int[][] tables = new int[LANDMARK_COUNT][];
+
+        int first = 0;
+        while (first < cells && !open[first]) first++;
+        if (first == cells) return;
+        int landmark = breadthFirst(first, new int[cells], queue);
+
+        int count = 0;
+        while (count < LANDMARK_COUNT) {
+            int[] table = new int[cells];
+            breadthFirst(landmark, table, queue);
+            tables[count++] = table;
+
+            int next = -1;
+            int furthestDistance = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                closest[cell] = Math.min(closest[cell], table[cell]);
+                if (open[cell] && closest[cell] > furthestDistance) {
+                    furthestDistance = closest[cell];
+                    next = cell;
+                }
+            }
+            if (next == -1) break;
+            landmark = next;
+        }
+
+        distances = tables;
+        landmarkCount = count;
+    }
+
+    /**
+     * Breadth First Search over the open cells, filling in the distance of
+     * every cell from the source.
+     *
+     * @return the last cell reached, which is one of the furthest
+     */
+    private int breadthFirst(int source, int[] table, int[] queue) {
+        Arrays.fill(table, NOT_REACHED);
+        int height = open.length / width;
+        int head = 0;
+        int tail = 0;
+        table[source] = 0;
+        queue[tail++] = source;
+
+        int cell = source;
+        while (head < tail) {
+            cell = queue[head++];
+            int x = cell % width;
+            int y = cell / width;
+            int nextDistance = table[cell] + PathFinder.DISTANCE;
+            for (int d = 0; d < PathFinder.NUM_OF_POSSIBLE_DIRECTION; d++) {
+                int nextX = x + PathFinder.DIRECTIONS_DELTA[d];
+                int nextY = y + PathFinder.DIRECTIONS_DELTA[
+                        (d+1)%PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+                if (nextX < 0 || nextX >= width || nextY < 0 ||
+                        nextY >= height) continue;
+
+                int next = nextY * width + nextX;
+                if (open[next] && table[next] == NOT_REACHED) {
+                    table[next] = nextDistance;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return cell;
+    }
+}
@@ -4,6 +4,7 @@
 package mycontroller.pathfinders;
 
 import utilities.Coordinate;
+import utilities.CoordinateSet;
 import world.WorldSpatial;
 
 import java.util.List;
@@ -47,16 +48,18 @@ public interface PathFinder {
                                   boolean avoidTrap);
 
     /**
-     * Find the nearest coordinate from a list of coordinates and detects the
-     * unreachable coordinates should it exists
-     * @param coordinates the list of coordinates
+     * Find the nearest coordinate from a set of coordinates and detects the
+     * unreachable coordinates should it exists. A coordinate in the car's
+     * part of the map is never unreachable, only out of reach from where
+     * the car faces, and is given when no other can be reached.
+     * @param coordinates the set of coordinates
      * @param currentCoordinate the current coordinate of the car
+     * @param unreachableCoordinates receives the unreachable coordinates
      * @return nearest coordinate
      */
-    Coordinate findNearestCoordinate(List<Coordinate> coordinates,
+    Coordinate findNearestCoordinate(CoordinateSet coordinates,
                                      Coordinate currentCoordinate,
                                      WorldSpatial.Direction orientation,
-                                     List<Coordinate>
-                                             unreachableCoordinates);
+                                     CoordinateSet unreachableCoordinates);
 
 }
@@ -0,0 +1,116 @@
+/**
+ * Group 23
+ */
+package mycontroller.pathfinders;
+
+import mycontroller.DrivingConfig;
+import mycontroller.Route;
+
+/**
+ * Creates the PathFinder named by the PathFinder entry of
+ * Driving.Properties, e.g.
+ * <pre>
+ * PathFinder=astar
+ * </pre>
+ * The trap weighted Dijkstra PathFinder is used when the entry is missing.
+ */
+public class PathFinderFactory {
+    /**
+     * The Driving.Properties entry naming the PathFinder.
+     */
+    public static final String PROPERTY = "PathFinder";
+
+    /**
+     * The name of the Breadth First Search PathFinder.
+     */
+    public static final String BFS = "bfs";
+
+    /**
+     * The name of the bidirectional Breadth First Search PathFinder.
+     */
+    public static final String BIDIRECTIONAL = "bidir";
+
+    /**
+     * The name of the A* PathFinder.
+     */
+    public static final String A_STAR = "astar";
+
+    /**
+     * The name of the Jump Point Search PathFinder.
+     */
+    public static final String JUMP_POINT_SEARCH = "jps";
+
+    /**
+     * The name of the hierarchical PathFinder.
+     */
+    public static final String HIERARCHICAL = "hpa";
+
+    /**
+     * The name of the trap weighted Dijkstra PathFinder.
+     */
+    public static final String DIJKSTRA = "dijkstra";
+
+    /**
+     * The name of the trap weighted Dijkstra PathFinder over the corridors
+     * between junctions.
+     */
+    public static final String CORRIDOR = "corridor";
+
+    /**
+     * The name of the incremental D* Lite PathFinder.
+     */
+    public static final String D_STAR_LITE = "dstar";
+
+    private PathFinderFactory() {
+    }
+
+    /**
+     * Creates the PathFinder configured in Driving.Properties.
+     *
+     * @param route the route to search
+     * @return the path finder
+     */
+    public static PathFinder createPathFinder(Route route) {
+        return createPathFinder(configuredName(), route);
+    }
+
+    /**
+     * Creates a PathFinder by name.
+     *
+     * @param name  the name of the path finder
+     * @param route the route to search
+     * @return the path finder
+     */
+    public static PathFinder createPathFinder(String name, Route route) {
+        switch (name.trim().toLowerCase()) {
+            case BFS:
+                return new BreadthFirstSearchPathFinding(route);
+            case BIDIRECTIONAL:
+                return new BidirectionalSearchPathFinding(route);
+            case A_STAR:
+                return new AStarPathFinding(route);
+            case JUMP_POINT_SEARCH:
+                return new JumpPointSearchPathFinding(route);
+            case HIERARCHICAL:
+                return new HierarchicalPathFinding(route);
+            case DIJKSTRA:
+                return new DijkstraPathFinding(route);
+            case CORRIDOR:
+                return new CorridorPathFinding(route);
+            case D_STAR_LITE:
+                return new DStarLitePathFinding(route);
+            default:
+                throw new IllegalArgumentException("Unknown path finder: " +
+                        name);
+        }
+    }
+
+    /**
+     * The name of the PathFinder set in Driving.Properties.
+     *
+     * @return the configured name, or DIJKSTRA if it is not set
+     */
+    public static String configuredName() {
+        return DrivingConfig.property(PROPERTY, DIJKSTRA);
+    }
+}
@@ -5,13 +5,9 @@ package mycontroller.states;
 
 import mycontroller.pathfinders.PathFinder;
 import utilities.Coordinate;
+import utilities.CoordinateSet;
 import world.WorldSpatial;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
 /**
  * The type of states that tracks coordinates.
  */
@@ -25,12 +21,17 @@ public abstract class CoordinateTrackerStates implements State{
     /**
      * The coordinates to track
      */
-    private Set<Coordinate> importantCoordinates;
+    private CoordinateSet importantCoordinates;
 
     /**
      * Recording added coordinates
      */
-    private Set<Coordinate> coordinatesHistory;
+    private CoordinateSet coordinatesHistory;
+
+    /**
+     * Reused buffer for the coordinates found to be unreachable
+     */
+    private CoordinateSet unreachableCoordinates;
 
     /**
      * Instantiates a new Coordinate tracker states.
@@ -39,8 +40,9 @@ public abstract class CoordinateTrackerStates implements State{
      */
     public CoordinateTrackerStates(PathFinder pathFinder) {
         this.pathFinder = pathFinder;
-        this.importantCoordinates = new HashSet<>();
-        this.coordinatesHistory = new HashSet<>();
+        this.importantCoordinates = new CoordinateSet();
+        this.coordinatesHistory = new CoordinateSet();
+        this.unreachableCoordinates = new CoordinateSet();
     }
 
 
@@ -48,22 +50,22 @@ public abstract class CoordinateTrackerStates implements State{
     public Coordinate getCoordinate(Coordinate currentCoordinate,
                                     WorldSpatial.Direction orientation) {
 
-        List<Coordinate> unreachableCoordinates = new ArrayList<>();
+        unreachableCoordinates.clear();
 
         /**
          * Finding the closes coordinate from the car
          */
         Coordinate nearestCoordinate =
-                pathFinder.findNearestCoordinate(
-                        new ArrayList<>(importantCoordinates),
+                pathFinder.findNearestCoordinate(importantCoordinates,
                         currentCoordinate, orientation,
                         unreachableCoordinates);
 
         /**
          * When unreachable coordinates are found, they are to be deleted
          */
-        for (Coordinate coordinate: unreachableCoordinates)
-            importantCoordinates.remove(coordinate);
+        for (int i = 0; i < unreachableCoordinates.size(); i++)
+            importantCoordinates.remove(unreachableCoordinates.x(i),
+                    unreachableCoordinates.y(i));
 
         return nearestCoordinate;
     }
@@ -74,8 +76,7 @@ public abstract class CoordinateTrackerStates implements State{
         /**
          * If a coordinate has been added before, it will not get added again
          */
-        if(!coordinatesHistory.contains(coordinate)){
-            coordinatesHistory.add(coordinate);
+        if(coordinatesHistory.add(coordinate)){
             importantCoordinates.add(coordinate);
             return true;
         }
@@ -90,13 +91,25 @@ public abstract class CoordinateTrackerStates implements State{
         return !importantCoordinates.isEmpty();
     }
 
+    /**
+     * Tracks a coordinate given by getCoordinate again, should the car not
+     * drive to it after all.
+     *
+     * @param coordinate the coordinate
+     */
+    public void restoreCoordinate(Coordinate coordinate) {
+        if(coordinatesHistory.contains(coordinate)){
+            importantCoordinates.add(coordinate);
+        }
+    }
+
     @Override
     public void removeCoordinate(Coordinate coordinate) {
 
         /**
          * Remove certain coordinates
          */
-        if(!importantCoordinates.contains(coordinate)) return;
+        if(coordinate == null) return;
         importantCoordinates.remove(coordinate);
     }
 
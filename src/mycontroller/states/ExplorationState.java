@@ -3,16 +3,20 @@
  */
 package mycontroller.states;
 
+import mycontroller.pathfinders.BucketQueue;
+import mycontroller.pathfinders.DijkstraPathFinding;
 import mycontroller.pathfinders.PathFinder;
 import mycontroller.Route;
 import utilities.Coordinate;
-import world.World;
+import world.Car;
 import world.WorldSpatial;
 
 import java.util.*;
 
 /**
- * The type Exploration method for the car.
+ * The type Exploration method for the car. It either drives to the nearest
+ * unexplored coordinate, or with coverage, to the coordinate from which the
+ * car sees the most unexplored coordinates for the distance it drives there.
  */
 public class ExplorationState implements State {
     /**
@@ -20,6 +24,18 @@ public class ExplorationState implements State {
      */
     public static final int UNEXPLORED = 0;
 
+    /**
+     * The ticks a destination costs on top of the distance driven to it, as
+     * the car brakes at every destination
+     */
+    private static final int DESTINATION_COST = 3;
+
+    /**
+     * The most coordinates the car can see at once
+     */
+    private static final int VIEW_AREA =
+            (2 * Car.VIEW_SQUARE + 1) * (2 * Car.VIEW_SQUARE + 1);
+
     /**
      * direction modifier
      */
@@ -27,6 +43,18 @@ public class ExplorationState implements State {
     private Route route;
     private boolean finished = false;
 
+    /**
+     * Whether to drive to where the car sees the most instead of to the
+     * nearest unexplored coordinate
+     */
+    private boolean coverage;
+
+    /**
+     * Whether the last coordinate given by coverage only moved the car out
+     * of its coordinate
+     */
+    private boolean stepped;
+
     /**
      * a map that marks which coordinate has or has not been explored
      */
@@ -38,69 +66,63 @@ public class ExplorationState implements State {
      */
     private int smallestValue;
 
+    /**
+     * The search queue of cell indices, the generation each cell or state
+     * was last queued in and the distances of the lookout search
+     */
+    private int[] queue;
+    private int[] visited;
+    private int[] distance;
+    private int epoch;
+
+    /**
+     * The number of cells, and the queue of the lookout search, whose
+     * states past the cells are the coordinates the car cannot turn on,
+     * one for each direction they are entered in
+     */
+    private int cells;
+    private BucketQueue open;
+
     /**
      * Instantiates a new Exploration state.
      *
      * @param route the exploration map
      */
     public ExplorationState(Route route) {
+        this(route, false);
+    }
+
+    /**
+     * Instantiates a new Exploration state.
+     *
+     * @param route the exploration map
+     * @param coverage whether to drive to where the car sees the most
+     */
+    public ExplorationState(Route route, boolean coverage) {
         this.explorationMap = route.getGridMap();
         this.route = route;
+        this.coverage = coverage;
     }
 
     @Override
     public Coordinate getCoordinate(Coordinate currentCoordinate,
                                     WorldSpatial.Direction orientation) {
         /**
-         * initializing initial value
+         * The smallest value among the coordinates that can be explored,
+         * kept up to date by Route as coordinates are explored
          */
-        smallestValue = Integer.MAX_VALUE;
+        smallestValue = route.getFewestVisits();
 
         /**
-         * Finding the smallest value of the coordinate that has not been
-         * explored
-         */
-        for (int[] row : explorationMap) {
-            int currentValue;
-
-            try{
-                /**
-                 * Finding minimum value of a row
-                 */
-                currentValue = Arrays.stream(row)
-                                    .filter(value -> value != Route.BLOCKED &&
-                                            value != Route.TO_AVOID)
-                                    .min()
-                                    .getAsInt();
-            } catch (NoSuchElementException e){
-                /**
-                 * Happens when all members of row is Route.Blocked
-                 */
-                currentValue = Integer.MAX_VALUE;
-            }
-
-            /**
-             * Updating the smallest value
-             */
-            if (smallestValue > currentValue){
-                smallestValue = currentValue;
-            }
-        }
-        /**
-         * Initial possible coordinate which are the coordinates around the car
+         * Find the nearest unexplored spot, looking around the car first in
+         * the direction it is heading
          */
         modifier = orientationPriorityModifier(orientation);
-        Set<Coordinate> initialPossibleCoordinates = new LinkedHashSet<>();
-        Set<Coordinate> addedCoordinates = new HashSet<>();
-        addedCoordinates.add(currentCoordinate);
-        initialPossibleCoordinates.add(currentCoordinate);
-
-
-        /**
-         * Find the nearest unexplored spot
-         */
-        return findNearestUnexploredSpot(initialPossibleCoordinates,
-                addedCoordinates);
+        if(coverage){
+            Coordinate lookout = findBestLookout(currentCoordinate);
+            if(lookout != null) return lookout;
+        }
+        return findNearestUnexploredSpot(currentCoordinate);
     }
 
     @Override
@@ -122,8 +144,11 @@ public class ExplorationState implements State {
     @Override
     public void removeCoordinate(Coordinate coordinate) {
         /**
-         * There is nothing to remove
+         * There is nothing to remove, a coordinate the car cannot drive to
+         * counts as explored once more so others are gone to first
          */
+        if(coordinate == null) return;
+        route.updateMap(coordinate);
     }
 
     /**
@@ -148,82 +173,335 @@ public class ExplorationState implements State {
     }
 
     /**
-     * Find nearest unexplored coordinate.
+     * Find nearest unexplored coordinate. Coordinates with the smallest value
+     * that the car cannot reach are in other parts of the map, so they are
+     * blocked along with their parts and the next smallest value is looked
+     * for, rather than sending the car to coordinates it has already seen.
      *
-     * @param possibleCoordinate the possible coordinate
-     * @param addedCoordinates   to record coordinates that has been checked
-     * @return the nearest unexplored coordinate
+     * @param currentCoordinate the current coordinate of the car
+     * @return the nearest coordinate with the smallest value, or the car's
+     * own coordinate once nothing the car can reach is left to explore
      */
-    public Coordinate findNearestUnexploredSpot(Set<Coordinate>
-                                                          possibleCoordinate,
-                                                Set<Coordinate>
-                                                        addedCoordinates){
-        Set<Coordinate> nextPossibleCoordinate = new LinkedHashSet<>();
-
+    private Coordinate findNearestUnexploredSpot(Coordinate
+                                                         currentCoordinate){
+        while(smallestValue != Integer.MAX_VALUE){
+            Coordinate spot = searchSmallestValue(currentCoordinate);
+            if(spot != null) return spot;
+            if(!blockUnreached(currentCoordinate)) break;
+            smallestValue = route.getFewestVisits();
+        }
+        return currentCoordinate;
+    }
 
+    /**
+     * Find the nearest coordinate with the smallest value with a Breadth
+     * First Search from the car through the coordinates that are not
+     * blocked, checking the neighbours of each coordinate in the order given
+     * by the modifier. The search ends when one is found or every coordinate
+     * the car can reach has been looked at, leaving out the dead ends Route
+     * knows of.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @return the nearest coordinate with the smallest value, or null if the
+     * car cannot reach any
+     */
+    private Coordinate searchSmallestValue(Coordinate currentCoordinate){
+        int width = route.getWidth();
+        startSearch();
 
-        /**
-         * Iterate through the possible coordinates and adding the next
-         * possible coordinates
-         */
-        for (Coordinate currentCoordinate: possibleCoordinate) {
+        int start = currentCoordinate.y * width + currentCoordinate.x;
+        visited[start] = epoch;
+        queue[0] = start;
+        int head = 0;
+        int tail = 1;
 
-            /**
-             * Iterate through each coordinate starting from the ones nearest to
-             * the car to the furthest to find the nearest coordinate with
-             * the smallest value
-             */
-            int currentX = currentCoordinate.x;
-            int currentY = currentCoordinate.y;
+        while (head < tail) {
+            int current = queue[head++];
+            int currentX = current % width;
+            int currentY = current / width;
 
             for (int i = 0; i < PathFinder.NUM_OF_POSSIBLE_DIRECTION; i++) {
-                    int index1 = (i + modifier) %
-                            PathFinder.NUM_OF_POSSIBLE_DIRECTION;
-                    int index2 =
-                            (i + modifier + 1) %
-                                    PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+                int index1 = (i + modifier) %
+                        PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+                int index2 = (i + modifier + 1) %
+                        PathFinder.NUM_OF_POSSIBLE_DIRECTION;
                 int nextX = currentX + PathFinder.DIRECTIONS_DELTA[index1];
                 int nextY = currentY + PathFinder.DIRECTIONS_DELTA[index2];
-                Coordinate coordinate = new Coordinate(nextX, nextY);
+
                 /**
-                 * Ignore values outside the map
+                 * Ignore values outside the map and the coordinates already
+                 * looked at, the car's own among them
                  */
-                if(!Route.isWithinMap(nextX, nextY)) continue;
+                if(!route.isWithinMap(nextX, nextY)) continue;
+                int next = nextY * width + nextX;
+                if(visited[next] == epoch) continue;
 
                 /**
                  * If the nearest unexplored coordinate is found, it is
                  * returned, if not, its surroundings will be processed
                  */
                 if(explorationMap[nextY][nextX] == smallestValue &&
-                        !route.toAvoid(coordinate)){
-
+                        !route.toAvoid(nextX, nextY)){
                     return new Coordinate(nextX, nextY);
+                }
 
-                } else if (!route.isBlocked(nextX, nextY) &&
-                        !addedCoordinates.contains(coordinate)){
+                if(!route.isBlocked(nextX, nextY) &&
+                        !isPruned(current, start, nextX, nextY)){
                     /**
-                     * If coordinate has not been checked, it will be added
-                     * into the next checked coordinate
+                     * Record checked coordinates
                      */
+                    visited[next] = epoch;
+                    queue[tail++] = next;
+                }
+            }
+        }
 
-                    nextPossibleCoordinate.add(coordinate);
+        return null;
+    }
 
-                    /**
-                     * Record checked coordinates
-                     */
-                    addedCoordinates.add(coordinate);
+    /**
+     * Blocks the parts of the map holding the coordinates with the smallest
+     * value that the last search did not reach.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @return true if anything was blocked
+     */
+    private boolean blockUnreached(Coordinate currentCoordinate){
+        int width = route.getWidth();
+        boolean blocked = false;
+        for (int y = 0; y < route.getHeight(); y++) {
+            int[] row = explorationMap[y];
+            for (int x = 0; x < width; x++) {
+                if(row[x] == smallestValue && visited[y * width + x] != epoch &&
+                        route.blockUnreachable(currentCoordinate.x,
+                                currentCoordinate.y, x, y)){
+                    blocked = true;
                 }
+            }
+        }
+        return blocked;
+    }
+
+    /**
+     * Find the coordinate from which the car sees the most unexplored
+     * coordinates for what it costs to drive there, with Dijkstra's
+     * Algorithm from the car through the coordinates that are not blocked.
+     * Like DijkstraPathFinding when avoiding traps, every coordinate costs
+     * DISTANCE plus AVOID_TRAP_FACTOR times the cost of its trap, and one
+     * the car cannot turn on is searched once for each direction it is
+     * entered in and only left straight on, so a lookout behind a trap field
+     * is weighed against the health lost driving through it. Only the
+     * coordinates already explored are driven through, as a trap is only
+     * known once seen, and a lookout is never further than the edge of what
+     * has been explored. The car sees
+     * every coordinate within Car.VIEW_SQUARE of it, walls or not. The
+     * search ends once even a view full of unexplored coordinates would not
+     * be worth driving further for. Dead ends are searched too, as the car
+     * sees out of them. Like the PathFinders, it leaves the car's coordinate
+     * only forward or backward and never comes back through it, so the
+     * coordinate found can be driven to.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @return the coordinate, the coordinate in front of or behind the car
+     * should it only see unexplored coordinates by coming back through its
+     * own, or null if it cannot see any from anywhere it can reach
+     */
+    private Coordinate findBestLookout(Coordinate currentCoordinate){
+        int width = route.getWidth();
+        startSearch();
+        open.reset(PathFinder.DISTANCE +
+                DijkstraPathFinding.AVOID_TRAP_FACTOR * route.getMaxTrapCost());
+
+        int start = currentCoordinate.y * width + currentCoordinate.x;
+
+        /**
+         * The first coordinate the car can drive to, should it have to
+         * step out of its coordinate
+         */
+        int firstStep = -1;
+
+        /**
+         * The best coordinate so far, with the unexplored coordinates seen
+         * from it and what it costs
+         */
+        int best = -1;
+        int bestSeen = 0;
+        int bestCost = 1;
 
+        /**
+         * The modifier puts the way the car faces first, so it can only
+         * leave its coordinate on the first and third
+         */
+        for (int i = 0; i < PathFinder.NUM_OF_POSSIBLE_DIRECTION; i += 2) {
+            int direction = (i + modifier) %
+                    PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+            int next = lookoutStep(currentCoordinate.x, currentCoordinate.y,
+                    direction, start, 0);
+            if(next != -1 && firstStep == -1) firstStep = next;
+        }
+
+        while (!open.isEmpty()) {
+            int state = open.poll();
+            int stateDistance = open.lastPriority();
+            if(visited[state] != epoch || distance[state] != stateDistance){
+                continue;
+            }
+
+            int current = cellOfState(state);
+            int currentX = current % width;
+            int currentY = current / width;
+            int cost = stateDistance + DESTINATION_COST;
+
+            /**
+             * Nothing further away can see more per cost
+             */
+            if(best != -1 && VIEW_AREA * bestCost <= bestSeen * cost) break;
+
+            if(!route.toAvoid(currentX, currentY)){
+                int seen = unexploredInView(currentX, currentY);
+                if(seen * bestCost > bestSeen * cost){
+                    best = current;
+                    bestSeen = seen;
+                    bestCost = cost;
+                }
+            }
 
+            /**
+             * The car cannot turn on some traps, so it can only carry on in
+             * the direction it entered them in
+             */
+            int straight = state < cells ? -1 :
+                    (state - cells) % PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+            for (int i = 0; i < PathFinder.NUM_OF_POSSIBLE_DIRECTION; i++) {
+                int direction = (i + modifier) %
+                        PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+                if(straight != -1 && direction != straight) continue;
+                lookoutStep(currentX, currentY, direction, start,
+                        stateDistance);
             }
         }
 
         /**
-         * checking the neighbouring coordinates of the next possible
-         * coordinates
+         * Driving out of its coordinate first lets the car search again
+         * from a coordinate it can come back through, but only once, as
+         * what is left may be in another part of the map
          */
-        return findNearestUnexploredSpot(nextPossibleCoordinate,
-                addedCoordinates);
+        if(best == -1 && !stepped && firstStep != -1){
+            stepped = true;
+            best = firstStep;
+        } else {
+            stepped = false;
+        }
+
+        if(best == -1) return null;
+        return new Coordinate(best % width, best / width);
+    }
+
+    /**
+     * Drives the lookout search one coordinate on, queueing the coordinate
+     * should this be the cheapest way onto it in that direction yet.
+     *
+     * @param x the x coordinate driven from
+     * @param y the y coordinate driven from
+     * @param direction the direction driven in, an index of DIRECTIONS_DELTA
+     * @param start the cell index of the car, which is never come back to
+     * @param fromDistance the cost of reaching the coordinate driven from
+     * @return the cell index driven onto, or -1 if it is blocked or not
+     * explored yet
+     */
+    private int lookoutStep(int x, int y, int direction, int start,
+                            int fromDistance){
+        int nextX = x + PathFinder.DIRECTIONS_DELTA[direction];
+        int nextY = y + PathFinder.DIRECTIONS_DELTA[(direction + 1) %
+                PathFinder.NUM_OF_POSSIBLE_DIRECTION];
+        if(!route.isWithinMap(nextX, nextY) ||
+                route.isBlocked(nextX, nextY) ||
+                explorationMap[nextY][nextX] == UNEXPLORED) return -1;
+        int next = nextY * route.getWidth() + nextX;
+        if(next == start) return -1;
+
+        int state = route.canTurn(nextX, nextY) ? next :
+                cells + next * PathFinder.NUM_OF_POSSIBLE_DIRECTION + direction;
+        int nextDistance = fromDistance + PathFinder.DISTANCE +
+                DijkstraPathFinding.AVOID_TRAP_FACTOR *
+                        route.getTrapCost(nextX, nextY);
+        if(visited[state] != epoch || nextDistance < distance[state]){
+            visited[state] = epoch;
+            distance[state] = nextDistance;
+            open.push(nextDistance, state);
+        }
+        return next;
+    }
+
+    /**
+     * The cell index of a state of the lookout search. A coordinate the car
+     * can turn on is searched as its cell index, one it cannot as cells +
+     * cell * 4 + the direction it was entered in.
+     */
+    private int cellOfState(int state){
+        return state < cells ? state :
+                (state - cells) / PathFinder.NUM_OF_POSSIBLE_DIRECTION;
+    }
+
+    /**
+     * Whether a search should leave out a coordinate in a dead end. While
+     * coordinates are left unexplored there are none in a dead end, so one
+     * is only gone into from the car's coordinate or from another in a dead
+     * end, which gets the search out of the one the car may be in.
+     */
+    private boolean isPruned(int current, int start, int nextX, int nextY){
+        if(smallestValue != Route.TRAP_OR_ROAD || current == start){
+            return false;
+        }
+        int width = route.getWidth();
+        return route.isDeadEnd(nextX, nextY) &&
+                !route.isDeadEnd(current % width, current / width);
+    }
+
+    /**
+     * The number of coordinates with the smallest value the car would see
+     * from a coordinate. Route counts the ones never explored itself, the
+     * window is only gone through once every coordinate has been explored.
+     */
+    private int unexploredInView(int x, int y){
+        if(smallestValue == Route.TRAP_OR_ROAD){
+            return route.countUnexplored(x - Car.VIEW_SQUARE,
+                    y - Car.VIEW_SQUARE, x + Car.VIEW_SQUARE,
+                    y + Car.VIEW_SQUARE);
+        }
+
+        int fromX = Math.max(0, x - Car.VIEW_SQUARE);
+        int toX = Math.min(route.getWidth() - 1, x + Car.VIEW_SQUARE);
+        int fromY = Math.max(0, y - Car.VIEW_SQUARE);
+        int toY = Math.min(route.getHeight() - 1, y + Car.VIEW_SQUARE);
+
+        int seen = 0;
+        for (int viewY = fromY; viewY <= toY; viewY++) {
+            int[] row = explorationMap[viewY];
+            for (int viewX = fromX; viewX <= toX; viewX++) {
+                if(row[viewX] == smallestValue) seen++;
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Starts a new search generation, allocating the buffers on the first
+     */
+    private void startSearch(){
+        if (queue == null) {
+            cells = route.getWidth() * route.getHeight();
+            int states = cells * (1 + PathFinder.NUM_OF_POSSIBLE_DIRECTION);
+            queue = new int[cells];
+            visited = new int[states];
+            distance = new int[states];
+            open = new BucketQueue(cells);
+        }
+        epoch++;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
     }
 
     @Override
@@ -233,11 +511,7 @@ public class ExplorationState implements State {
          */
 
         if(finished) return true;
-        for (int[] row: explorationMap){
-            if(Arrays.stream(row).anyMatch(x -> x == UNEXPLORED)){
-                return false;
-            }
-        }
+        if(route.hasUnexplored()) return false;
         finished = true;
         return true;
     }
@@ -246,7 +520,7 @@ public class ExplorationState implements State {
      * Prints the exploration map
      */
     private void printExplorationMap(){
-        for (int i = World.MAP_HEIGHT - 1; i >= 0; i--) {
+        for (int i = route.getHeight() - 1; i >= 0; i--) {
             int[] x = explorationMap[i];
             for (int y :
                     x) {
@@ -3,25 +3,37 @@
  */
 package mycontroller.strategies;
 
+import mycontroller.DrivingConfig;
 import mycontroller.Route;
 import mycontroller.pathfinders.PathFinder;
 import mycontroller.states.*;
 import utilities.Coordinate;
 import world.Car;
 
+import java.util.List;
+
 public class KeyPriorityStrategy implements StrategyFactory {
 
     private boolean avoidTrap = false;
     private boolean healCommences = false;
     private boolean interrupt = false;
     private Route route;
-    private State explore, heal, getKey, exit;
+    private State explore, heal, exit;
+    private GettingKeyState getKey;
+
+    /**
+     * The state that decided the last coordinate
+     */
+    private State lastState;
     private Car car;
+    private PathFinder pathFinder;
 
     public KeyPriorityStrategy(Route route, Car car, PathFinder pathFinder) {
         this.route = route;
         this.car = car;
-        this.explore = new ExplorationState(this.route);
+        this.pathFinder = pathFinder;
+        this.explore = new ExplorationState(this.route,
+                DrivingConfig.isCoverageExplorationConfigured());
         this.heal = new HealingState(pathFinder, car);
         this.getKey = new GettingKeyState(pathFinder);
         this.exit = new ExitingState(pathFinder);
@@ -36,6 +48,13 @@ public class KeyPriorityStrategy implements StrategyFactory {
         State currentState = null;
         avoidTrap = false;
 
+        /**
+         * Healing stops once no heal tile is left to reach
+         */
+        if(healCommences && !heal.isCoordinateExist()){
+            healCommences = false;
+        }
+
         /**
          * Keep healing until heal state is finished
          */
@@ -57,11 +76,12 @@ public class KeyPriorityStrategy implements StrategyFactory {
              * Exit when all the keys are found and an exit tile exists
              */
             currentState = exit;
-        }  else if ((!heal.isCoordinateExist() ||
-                car.getHealth() > MINIMUM_HEALTH) &&
-                getKey.isCoordinateExist()){
+        }  else if ((car.getHealth() > MINIMUM_HEALTH ||
+                explore.isFinished()) && getKey.isCoordinateExist()){
             /**
-             * Only get key when the car's health is above certain threshold
+             * Only get key when the car's health is above certain threshold,
+             * otherwise a heal tile is explored for while there is
+             * somewhere left to explore, as keys are often behind lava
              */
             currentState = getKey;
         } else if (!healCommences){
@@ -86,9 +106,58 @@ public class KeyPriorityStrategy implements StrategyFactory {
             return decideNextCoordinate(currentCoordinate);
         }
 
+        /**
+         * A key the car could not drive back from is only gone for once
+         * healed, or once a heal tile is found should there be somewhere
+         * left to explore
+         */
+        if(currentState == getKey &&
+                car.getHealth() < HealingState.MAXIMUM_HEALTH_TO_HEAL &&
+                (heal.isCoordinateExist() || !explore.isFinished()) &&
+                car.getHealth() <= 2 * healthCost(currentCoordinate,
+                        nextCoordinate)){
+            getKey.restoreCoordinate(nextCoordinate);
+            if(heal.isCoordinateExist()){
+                healCommences = true;
+                return decideNextCoordinate(currentCoordinate);
+            }
+            avoidTrap = true;
+            currentState = explore;
+            nextCoordinate = explore.getCoordinate(currentCoordinate,
+                    car.getOrientation());
+        }
+
+        lastState = currentState;
         return nextCoordinate;
     }
 
+    /**
+     * The health the car loses on the path to a coordinate, as Route weighs
+     * each trap by the health it takes.
+     *
+     * @param currentCoordinate the current coordinate of the car
+     * @param coordinate the coordinate
+     * @return the trap costs along the path, or 0 if it cannot be reached
+     */
+    private int healthCost(Coordinate currentCoordinate,
+                           Coordinate coordinate){
+        List<Coordinate> path = pathFinder.findBestPath(currentCoordinate,
+                coordinate, car.getOrientation(), avoidTrap);
+        if(path == PathFinder.UNREACHABLE) return 0;
+
+        int cost = 0;
+        for (int i = 1; i < path.size(); i++) {
+            Coordinate step = path.get(i);
+            cost += route.getTrapCost(step.x, step.y);
+        }
+        return cost;
+    }
+
+    @Override
+    public void dropCoordinate(Coordinate coordinate) {
+        if(lastState != null) lastState.removeCoordinate(coordinate);
+    }
+
     @Override
     public boolean avoidTrap() {
         return avoidTrap;
@@ -41,6 +41,14 @@ public interface StrategyFactory {
      */
     Coordinate decideNextCoordinate(Coordinate currentCoordinate);
 
+    /**
+     * Gives up the coordinate last decided, which the car cannot drive to
+     * even after moving out of its coordinate.
+     *
+     * @param coordinate the coordinate
+     */
+    void dropCoordinate(Coordinate coordinate);
+
     /**
      * dictates whether the car should avoid traps or not
      *
@@ -0,0 +1,140 @@
+package swen30006.driving;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.badlogic.gdx.maps.tiled.TiledMap;
+
+/**
+ * Runs every map x controller x seed combination headlessly on a fork-join pool.
+ *
+ * TMX maps are deterministic, so they run once per controller and are parsed once and shared
+ * read-only between runs. Generated maps (see {@link MapGenerator}) run once per seed.
+ */
+public class BatchRunner {
+
+	private static final String CSV_HEADER =
+			"map,controller,seed,outcome,ticks,health,keys,wall_hits,cpu_ns,cpu_ns_per_tick";
+
+	private final List<Run> runs = new ArrayList<>();
+	private final long maxTicks;
+	private final Map<String, TiledMap> loadedMaps = new ConcurrentHashMap<>();
+
+	public BatchRunner(List<String> maps, List<String> controllers, List<Long> seeds, long maxTicks) {
+		this.maxTicks = maxTicks;
+		for (String map : maps) {
+			for (String controller : controllers) {
+				if (MapGenerator.isGenerated(map)) {
+					for (long seed : seeds) runs.add(new Run(map, controller, seed));
+				} else {
+					runs.add(new Run(map, controller, null));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Executes all runs on the given pool and returns them in manifest order.
+	 */
+	public List<Run> run(ForkJoinPool pool) {
+		pool.invoke(new RunRange(0, runs.size()));
+		return runs;
+	}
+
+	public List<Run> getRuns() {
+		return runs;
+	}
+
+	public static void writeCsv(List<Run> runs, PrintWriter out) {
+		out.println(CSV_HEADER);
+		for (Run run : runs) {
+			HeadlessSimulation.Result result = run.getResult();
+			out.printf("%s,%s,%s,%s,%d,%.1f,%d,%d,%d,%d%n",
+					run.getMap(), run.getController(), run.getSeed() == null ? "" : run.getSeed(),
+					result.getOutcome(), result.getTicks(), result.getHealth(), result.getKeys(),
+					result.getWallHits(), result.getCpuNanos(), result.getCpuNanosPerTick());
+		}
+		out.flush();
+	}
+
+	private void execute(Run run) {
+		try {
+			TiledMap map;
+			if (run.getSeed() != null) {
+				map = MapGenerator.fromName(run.getMap(), run.getSeed()).generate();
+			} else {
+				map = loadedMaps.computeIfAbsent(run.getMap(), name -> new HeadlessMapLoader().load(name));
+			}
+			run.result = new HeadlessSimulation(map, run.getController()).run(maxTicks);
+		} catch (Exception | StackOverflowError e) {
+			System.err.println(run + " failed: " + e);
+			run.result = new HeadlessSimulation.Result(HeadlessSimulation.Outcome.ERROR, 0, 0, 0, 0, 0);
+		}
+	}
+
+	/**
+	 * Splits the run list in halves until a single run is left, so idle workers steal the rest.
+	 */
+	private class RunRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		RunRange(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				execute(runs.get(from));
+			} else if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new RunRange(from, mid), new RunRange(mid, to));
+			}
+		}
+	}
+
+	/**
+	 * One cell of the matrix. The seed is null for TMX maps.
+	 */
+	public static class Run {
+		private final String map;
+		private final String controller;
+		private final Long seed;
+		private volatile HeadlessSimulation.Result result;
+
+		Run(String map, String controller, Long seed) {
+			this.map = map;
+			this.controller = controller;
+			this.seed = seed;
+		}
+
+		public String getMap() {
+			return map;
+		}
+
+		public String getController() {
+			return controller;
+		}
+
+		public Long getSeed() {
+			return seed;
+		}
+
+		public HeadlessSimulation.Result getResult() {
+			return result;
+		}
+
+		public String toString() {
+			return map + " / " + controller + (seed == null ? "" : " / seed " + seed);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package swen30006.driving;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+import com.badlogic.gdx.utils.XmlReader;
+import com.badlogic.gdx.utils.XmlReader.Element;
+
+import world.World;
+
+/**
+ * Loads a TMX map into a {@link TiledMap} without touching OpenGL.
+ *
+ * {@link com.badlogic.gdx.maps.tiled.TmxMapLoader} creates a texture for every tileset, which
+ * needs a live GL context. The simulation only reads layer cells and tile properties, so this
+ * loader builds the same layers and properties with texture-less tiles. Layers are flipped on
+ * the Y axis exactly as TmxMapLoader does, so {@link world.World} sees an identical map.
+ */
+public class HeadlessMapLoader {
+
+	private static final int FLAG_FLIP_HORIZONTALLY = 0x80000000;
+	private static final int FLAG_FLIP_VERTICALLY = 0x40000000;
+	private static final int FLAG_FLIP_DIAGONALLY = 0x20000000;
+	private static final int MASK_CLEAR = ~(FLAG_FLIP_HORIZONTALLY | FLAG_FLIP_VERTICALLY | FLAG_FLIP_DIAGONALLY);
+
+	private final XmlReader xml = new XmlReader();
+
+	public TiledMap load(String fileName) {
+		File tmxFile = new File(fileName).getAbsoluteFile();
+		Element root = xml.parse(new FileHandle(tmxFile));
+
+		TiledMap map = new TiledMap();
+		map.getProperties().put(World.MAP_FILE_PROPERTY, tmxFile.getPath());
+		int tileWidth = root.getIntAttribute("tilewidth", 0);
+		int tileHeight = root.getIntAttribute("tileheight", 0);
+
+		for (Element tilesetElement : root.getChildrenByName("tileset")) {
+			map.getTileSets().addTileSet(loadTileSet(tmxFile, tilesetElement));
+		}
+		for (Element layerElement : root.getChildrenByName("layer")) {
+			map.getLayers().add(loadTileLayer(map, layerElement, tileWidth, tileHeight));
+		}
+		return map;
+	}
+
+	private TiledMapTileSet loadTileSet(File tmxFile, Element element) {
+		int firstgid = element.getIntAttribute("firstgid", 1);
+		String source = element.getAttribute("source", null);
+		if (source != null) {
+			element = xml.parse(new FileHandle(new File(tmxFile.getParentFile(), source)));
+		}
+
+		TiledMapTileSet tileset = new TiledMapTileSet();
+		tileset.setName(element.get("name", null));
+		int tileCount = element.getIntAttribute("tilecount", 0);
+		for (int id = 0; id < tileCount; id++) {
+			tileset.putTile(firstgid + id, newTile(firstgid + id));
+		}
+		for (Element tileElement : element.getChildrenByName("tile")) {
+			int gid = firstgid + tileElement.getIntAttribute("id", 0);
+			TiledMapTile tile = tileset.getTile(gid);
+			if (tile == null) {
+				tile = newTile(gid);
+				tileset.putTile(gid, tile);
+			}
+			loadProperties(tile.getProperties(), tileElement.getChildByName("properties"));
+		}
+		return tileset;
+	}
+
+	private TiledMapTile newTile(int gid) {
+		TiledMapTile tile = new StaticTiledMapTile((TextureRegion) null);
+		tile.setId(gid);
+		return tile;
+	}
+
+	private TiledMapTileLayer loadTileLayer(TiledMap map, Element element, int tileWidth, int tileHeight) {
+		int width = element.getIntAttribute("width", 0);
+		int height = element.getIntAttribute("height", 0);
+		TiledMapTileLayer layer = new TiledMapTileLayer(width, height, tileWidth, tileHeight);
+		layer.setName(element.getAttribute("name", null));
+		layer.setVisible(element.getIntAttribute("visible", 1) == 1);
+		loadProperties(layer.getProperties(), element.getChildByName("properties"));
+
+		int[] ids = getTileIds(element, width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int id = ids[y * width + x];
+				TiledMapTile tile = map.getTileSets().getTile(id & MASK_CLEAR);
+				if (tile != null) {
+					Cell cell = new Cell();
+					cell.setTile(tile);
+					cell.setFlipHorizontally((id & FLAG_FLIP_HORIZONTALLY) != 0);
+					cell.setFlipVertically((id & FLAG_FLIP_VERTICALLY) != 0);
+					// Same Y flip as TmxMapLoader: TMX rows run top-down, layers bottom-up
+					layer.setCell(x, height - 1 - y, cell);
+				}
+			}
+		}
+		return layer;
+	}
+
+	private int[] getTileIds(Element element, int width, int height) {
+		Element data = element.getChildByName("data");
+		String encoding = data.getAttribute("encoding", null);
+		int[] ids = new int[width * height];
+		if ("csv".equals(encoding)) {
+			String[] values = data.getText().split(",");
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = (int) Long.parseLong(values[i].trim());
+			}
+		} else if ("base64".equals(encoding)) {
+			String compression = data.getAttribute("compression", null);
+			byte[] bytes = Base64.getMimeDecoder().decode(data.getText().trim());
+			try (InputStream in = decompress(new ByteArrayInputStream(bytes), compression)) {
+				ByteBuffer buffer = ByteBuffer.allocate(ids.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+				byte[] chunk = new byte[4096];
+				int read;
+				while (buffer.hasRemaining() && (read = in.read(chunk, 0, Math.min(chunk.length, buffer.remaining()))) > 0) {
+					buffer.put(chunk, 0, read);
+				}
+				buffer.flip();
+				for (int i = 0; i < ids.length; i++) {
+					ids[i] = buffer.getInt();
+				}
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Corrupt layer data in " + element.getAttribute("name", "?"), e);
+			}
+		} else {
+			throw new IllegalArgumentException("Unsupported layer encoding: " + encoding);
+		}
+		return ids;
+	}
+
+	private InputStream decompress(InputStream in, String compression) throws IOException {
+		if (compression == null) return in;
+		switch (compression) {
+		case "zlib":
+			return new InflaterInputStream(in);
+		case "gzip":
+			return new GZIPInputStream(in);
+		default:
+			throw new IllegalArgumentException("Unsupported layer compression: " + compression);
+		}
+	}
+
+	private void loadProperties(MapProperties properties, Element element) {
+		if (element == null) return;
+		for (Element property : element.getChildrenByName("property")) {
+			String name = property.getAttribute("name", null);
+			String value = property.getAttribute("value", null);
+			if (value == null) value = property.getText();
+			String type = property.getAttribute("type", null);
+			properties.put(name, castProperty(type, value));
+		}
+	}
+
+	private Object castProperty(String type, String value) {
+		if (type == null) return value;
+		switch (type) {
+		case "int":
+			return Integer.valueOf(value);
+		case "float":
+			return Float.valueOf(value);
+		case "bool":
+			return Boolean.valueOf(value);
+		default:
+			return value;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package swen30006.driving;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+
+import world.Car;
+import world.World;
+
+/**
+ * Runs a World without a window or GL context. Each call to {@link #step()} is one logical tick:
+ * the controller is asked for its commands and the car is updated once, exactly as one fixed
+ * step of {@link Simulation#render()} would, but with no frame pacing and no RunSpeed cap.
+ */
+public class HeadlessSimulation {
+
+	public enum Outcome { WON, LOST, TIMED_OUT, ERROR };
+
+	public static final long DEFAULT_MAX_TICKS = 100000;
+
+	// The delta handed to World.update for every tick. Car uses its own fixed step internally.
+	private static final float TIME_STEP = 1/2f;
+
+	private final World world;
+	private long ticks = 0;
+
+	public HeadlessSimulation(String mapName, String controllerName) {
+		this(new HeadlessMapLoader().load(mapName), controllerName);
+	}
+
+	public HeadlessSimulation(TiledMap map, String controllerName) {
+		world = new World(map, controllerName, new Sprite());
+	}
+
+	/**
+	 * Advances the world by one logical tick.
+	 * @return true while the game is still running
+	 */
+	public boolean step() {
+		if (world.isGameEnded()) return false;
+		world.update(TIME_STEP);
+		ticks++;
+		return !world.isGameEnded();
+	}
+
+	/**
+	 * Steps the world until the game ends or maxTicks ticks have elapsed.
+	 */
+	public Result run(long maxTicks) {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		boolean cpuTimed = threads.isCurrentThreadCpuTimeSupported();
+		long startTicks = ticks;
+		long startTime = cpuTimed ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+		while (ticks - startTicks < maxTicks && step()) {
+			// keep stepping
+		}
+		long cpuNanos = (cpuTimed ? threads.getCurrentThreadCpuTime() : System.nanoTime()) - startTime;
+
+		Outcome outcome;
+		if (!world.isGameEnded()) {
+			outcome = Outcome.TIMED_OUT;
+		} else {
+			outcome = world.isGameWon() ? Outcome.WON : Outcome.LOST;
+		}
+		Car car = world.getCar();
+		return new Result(outcome, ticks, cpuNanos, car.getHealth(), car.getKeys().size(), car.getWallHits());
+	}
+
+	public long getTicks() {
+		return ticks;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Summary of a headless run.
+	 */
+	public static class Result {
+		private final Outcome outcome;
+		private final long ticks;
+		private final long cpuNanos;
+		private final float health;
+		private final int keys;
+		private final int wallHits;
+
+		public Result(Outcome outcome, long ticks, long cpuNanos, float health, int keys, int wallHits) {
+			this.outcome = outcome;
+			this.ticks = ticks;
+			this.cpuNanos = cpuNanos;
+			this.health = health;
+			this.keys = keys;
+			this.wallHits = wallHits;
+		}
+
+		public Outcome getOutcome() {
+			return outcome;
+		}
+
+		public boolean isWon() {
+			return outcome == Outcome.WON;
+		}
+
+		public long getTicks() {
+			return ticks;
+		}
+
+		public long getCpuNanos() {
+			return cpuNanos;
+		}
+
+		public float getHealth() {
+			return health;
+		}
+
+		public int getKeys() {
+			return keys;
+		}
+
+		public int getWallHits() {
+			return wallHits;
+		}
+
+		public long getCpuNanosPerTick() {
+			return ticks == 0 ? 0 : cpuNanos / ticks;
+		}
+
+		public String toString() {
+			return String.format("%s after %d ticks (health %.1f, keys %d, wall hits %d, cpu %.3f ms)",
+					outcome, ticks, health, keys, wallHits, cpuNanos / 1e6);
+		}
+	}
+}
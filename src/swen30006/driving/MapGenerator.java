@@ -0,0 +1,237 @@
+package swen30006.driving;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+
+/**
+ * Generates random maps in the same layer layout as the TMX maps in assets/, for headless runs.
+ *
+ * The map is a braided maze (a spanning-tree maze with some extra walls knocked out to form
+ * loops) with a few open rooms carved into it. The car starts in the bottom-left corner, the exit
+ * is the road cell furthest from the start and keys sit on lava tiles at random road cells. Only
+ * lava, grass and health traps are placed, so a generated map is always escapable.
+ */
+public class MapGenerator {
+
+	public static final String PREFIX = "generated:";
+
+	private static final int TILE_SIZE = 32;
+	private static final int DEFAULT_KEYS = 3;
+	private static final double LOOP_CHANCE = 0.08;
+	private static final double TRAP_CHANCE = 0.03;
+	private static final int[] DX = {1, 0, -1, 0};
+	private static final int[] DY = {0, 1, 0, -1};
+
+	private final int width;
+	private final int height;
+	private final int numKeys;
+	private final Random random;
+
+	private boolean[] road;
+
+	public MapGenerator(int width, int height, int numKeys, long seed) {
+		if (width < 5 || height < 5) throw new IllegalArgumentException("Map must be at least 5x5");
+		this.width = width;
+		this.height = height;
+		this.numKeys = numKeys;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Whether a map name refers to a generated map rather than a TMX file.
+	 */
+	public static boolean isGenerated(String mapName) {
+		return mapName.startsWith(PREFIX);
+	}
+
+	/**
+	 * Parses "generated:WIDTHxHEIGHT" or "generated:WIDTHxHEIGHTkKEYS", e.g. generated:200x150k4.
+	 */
+	public static MapGenerator fromName(String mapName, long seed) {
+		String spec = mapName.substring(PREFIX.length());
+		int keys = DEFAULT_KEYS;
+		int k = spec.indexOf('k');
+		if (k >= 0) {
+			keys = Integer.parseInt(spec.substring(k + 1));
+			spec = spec.substring(0, k);
+		}
+		String[] size = spec.split("x");
+		return new MapGenerator(Integer.parseInt(size[0]), Integer.parseInt(size[1]), keys, seed);
+	}
+
+	public TiledMap generate() {
+		road = new boolean[width * height];
+		carveMaze();
+		carveRooms();
+
+		int start = index(1, 1);
+		road[index(2, 1)] = true; // the car starts facing east, so it must be able to move
+		int exit = furthestRoad(start);
+
+		TiledMap map = new TiledMap();
+		TiledMapTileLayer roadLayer = layer(map, "Road");
+		TiledMapTileLayer utilityLayer = layer(map, "Utility");
+		TiledMapTileLayer trapLayer = layer(map, "Trap");
+		TiledMapTileLayer wallLayer = layer(map, "Wall");
+
+		Cell roadCell = cell(tile(1));
+		Cell wallCell = cell(tile(2));
+		Cell startCell = cell(tile(3));
+		Cell exitCell = cell(tile(4));
+		exitCell.getTile().getProperties().put("exit", Boolean.TRUE);
+		Cell lava = trap(5, "LavaTrap");
+		Cell grass = trap(6, "GrassTrap");
+		Cell health = trap(7, "HealthTrap");
+
+		boolean[] used = new boolean[road.length];
+		used[start] = true;
+		used[exit] = true;
+		used[index(2, 1)] = true;
+		utilityLayer.setCell(1, 1, startCell);
+		utilityLayer.setCell(exit % width, exit / width, exitCell);
+		for (int key = 1; key <= numKeys; key++) {
+			int i = randomFreeRoad(used);
+			Cell keyCell = trap(7 + key, "LavaTrap");
+			keyCell.getTile().getProperties().put("key", key);
+			trapLayer.setCell(i % width, i / width, keyCell);
+		}
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int i = index(x, y);
+				roadLayer.setCell(x, y, roadCell);
+				if (!road[i]) {
+					wallLayer.setCell(x, y, wallCell);
+				} else if (!used[i] && random.nextDouble() < TRAP_CHANCE) {
+					Cell[] traps = {lava, grass, health};
+					trapLayer.setCell(x, y, traps[random.nextInt(traps.length)]);
+				}
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Iterative recursive-backtracker maze over the odd cells, with extra walls knocked out.
+	 */
+	private void carveMaze() {
+		ArrayDeque<Integer> stack = new ArrayDeque<>();
+		road[index(1, 1)] = true;
+		stack.push(index(1, 1));
+		int[] order = {0, 1, 2, 3};
+		while (!stack.isEmpty()) {
+			int current = stack.peek();
+			int x = current % width, y = current / width;
+			shuffle(order);
+			boolean moved = false;
+			for (int d : order) {
+				int nx = x + 2 * DX[d], ny = y + 2 * DY[d];
+				if (nx > 0 && nx < width - 1 && ny > 0 && ny < height - 1 && !road[index(nx, ny)]) {
+					road[index(x + DX[d], y + DY[d])] = true;
+					road[index(nx, ny)] = true;
+					stack.push(index(nx, ny));
+					moved = true;
+					break;
+				}
+			}
+			if (!moved) stack.pop();
+		}
+		for (int y = 1; y < height - 1; y++) {
+			for (int x = 1; x < width - 1; x++) {
+				if (!road[index(x, y)] && random.nextDouble() < LOOP_CHANCE) road[index(x, y)] = true;
+			}
+		}
+	}
+
+	/**
+	 * Carves a handful of open rectangular rooms, roughly one per 400 cells.
+	 */
+	private void carveRooms() {
+		int rooms = width * height / 400;
+		for (int r = 0; r < rooms; r++) {
+			int w = 3 + random.nextInt(Math.max(1, Math.min(12, width - 4)));
+			int h = 3 + random.nextInt(Math.max(1, Math.min(12, height - 4)));
+			int x0 = 1 + random.nextInt(Math.max(1, width - w - 1));
+			int y0 = 1 + random.nextInt(Math.max(1, height - h - 1));
+			for (int y = y0; y < Math.min(height - 1, y0 + h); y++) {
+				for (int x = x0; x < Math.min(width - 1, x0 + w); x++) {
+					road[index(x, y)] = true;
+				}
+			}
+		}
+	}
+
+	private int furthestRoad(int start) {
+		int[] queue = new int[road.length];
+		boolean[] seen = new boolean[road.length];
+		int head = 0, tail = 0, last = start;
+		queue[tail++] = start;
+		seen[start] = true;
+		while (head < tail) {
+			last = queue[head++];
+			int x = last % width, y = last / width;
+			for (int d = 0; d < DX.length; d++) {
+				int next = index(x + DX[d], y + DY[d]);
+				if (road[next] && !seen[next]) {
+					seen[next] = true;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return last;
+	}
+
+	private int randomFreeRoad(boolean[] used) {
+		int i;
+		do {
+			i = random.nextInt(road.length);
+		} while (!road[i] || used[i]);
+		used[i] = true;
+		return i;
+	}
+
+	private void shuffle(int[] values) {
+		for (int i = values.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = values[i];
+			values[i] = values[j];
+			values[j] = tmp;
+		}
+	}
+
+	private int index(int x, int y) {
+		return y * width + x;
+	}
+
+	private TiledMapTileLayer layer(TiledMap map, String name) {
+		TiledMapTileLayer layer = new TiledMapTileLayer(width, height, TILE_SIZE, TILE_SIZE);
+		layer.setName(name);
+		map.getLayers().add(layer);
+		return layer;
+	}
+
+	private Cell trap(int id, String type) {
+		Cell cell = cell(tile(id));
+		cell.getTile().getProperties().put("type", type);
+		return cell;
+	}
+
+	private static TiledMapTile tile(int id) {
+		TiledMapTile tile = new StaticTiledMapTile((TextureRegion) null);
+		tile.setId(id);
+		return tile;
+	}
+
+	private static Cell cell(TiledMapTile tile) {
+		Cell cell = new Cell();
+		cell.setTile(tile);
+		return cell;
+	}
+}
@@ -4,6 +4,7 @@ import java.lang.Math;
 import java.util.Properties;
 import java.util.Set;
 import java.util.HashSet;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.stream.Collectors;
@@ -44,8 +45,6 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 	private enum CameraMode {WORLD, PLAYER};
 	private static CameraMode CAMERA_MODE = CameraMode.WORLD;
 	private static final int PLAYER_VIEW = 11;
-	private static boolean gameEnded = false;
-	private static boolean gameWon = false;
 	public static boolean DEBUG_MODE = false;
 	private BitmapFont font;
 	
@@ -64,21 +63,11 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		startTime = System.currentTimeMillis();
 		resetKeys();
 		
-		Properties drivingProperties = new Properties();
-		// Defaults
-		drivingProperties.setProperty("Map", "lecture-preview.tmx");
-		drivingProperties.setProperty("RunSpeed", "2");
-		drivingProperties.setProperty("Controller", "controller.ManualController");
-		
-		try (FileReader inStream = new FileReader("Driving.Properties")) {
-			drivingProperties.load(inStream);
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(1);
-		} 
+		Properties drivingProperties = loadDrivingProperties();
 		
 		String mapName = drivingProperties.getProperty("Map");
 		map = new TmxMapLoader().load(mapName);
+		map.getProperties().put(World.MAP_FILE_PROPERTY, new File(mapName).getAbsolutePath());
 		
 		int runSpeed = Integer.parseInt(drivingProperties.getProperty("RunSpeed"));
 		if (runSpeed < 1) {
@@ -96,7 +85,7 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		
 		// Set the camera
 		camera = new OrthographicCamera();
-		camera.setToOrtho(false,World.MAP_WIDTH,World.MAP_HEIGHT);
+		camera.setToOrtho(false,world.getMapWidth(),world.getMapHeight());
 		camera.update();
 		
 		// Define scale per unit
@@ -148,17 +137,17 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		font.setColor(Color.GREEN);
 		
 		//If we win or lose!
-		if(gameEnded){
+		if(world.isGameEnded()){
 			font.getData().setScale(5f);
-			String winText = gameWon ? "You WIN!" : "You LOSE!";
-			font.setColor(gameWon ? Color.GREEN : Color.RED);
+			String winText = world.isGameWon() ? "You WIN!" : "You LOSE!";
+			font.setColor(world.isGameWon() ? Color.GREEN : Color.RED);
 			final GlyphLayout layout = new GlyphLayout(font, winText);
 
 			final float fontX = 0 + (Gdx.graphics.getWidth() - layout.width) / 2;
 			final float fontY = 0 + (Gdx.graphics.getHeight() + layout.height) / 2;
 
 			font.draw(batch, layout, fontX, fontY);
-			String timeText = gameWon ? "You escaped and it took: " : "You failed and it took: ";
+			String timeText = world.isGameWon() ? "You escaped and it took: " : "You failed and it took: ";
 			System.out.println(timeText + ((System.currentTimeMillis() - startTime) / 1000+" seconds!"));
 			batch.end();
 			Gdx.app.exit();
@@ -168,6 +157,22 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		}
 	}
 	
+	public static Properties loadDrivingProperties() {
+		Properties drivingProperties = new Properties();
+		// Defaults
+		drivingProperties.setProperty("Map", "lecture-preview.tmx");
+		drivingProperties.setProperty("RunSpeed", "2");
+		drivingProperties.setProperty("Controller", "controller.ManualController");
+		
+		try (FileReader inStream = new FileReader("Driving.Properties")) {
+			drivingProperties.load(inStream);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		} 
+		return drivingProperties;
+	}
+	
 	@Override
 	public void dispose () {
 		/* From new template 1/5/2018
@@ -195,8 +200,8 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		}
 		if(keycode == Input.Keys.Z){
 			
-			camera.viewportWidth = World.MAP_WIDTH;
-			camera.viewportHeight = World.MAP_HEIGHT;
+			camera.viewportWidth = world.getMapWidth();
+			camera.viewportHeight = world.getMapHeight();
 			camera.position.set(0,0,0);
 			CAMERA_MODE = CameraMode.WORLD;
 		}
@@ -251,11 +256,6 @@ public class Simulation extends ApplicationAdapter implements InputProcessor {
 		camera.position.set(carXPosition, carYPosition, 0);
 	}
 	
-	public static void endGame(boolean won){
-		gameEnded = true;
-		gameWon = won;
-	}
-
 	public static void resetKeys() {
 		keys = new HashSet<>();
 	}
@@ -0,0 +1,99 @@
+package swen30006.driving.headless;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+
+import swen30006.driving.BatchRunner;
+import swen30006.driving.HeadlessSimulation;
+
+/**
+ * Runs a regression sweep described by a manifest (Batch.Properties by default):
+ * <pre>
+ * Maps=easy-map.tmx,test-key-map.tmx,generated:100x80
+ * Controllers=controller.AIController,mycontroller.MyAIController
+ * Seeds=1-10
+ * MaxTicks=100000
+ * Output=batch-results.csv
+ * </pre>
+ * Seeds only apply to generated maps. One CSV row is written per run.
+ */
+public class BatchLauncher {
+	public static void main (String[] arg) {
+		String manifest = arg.length > 0 ? arg[0] : "Batch.Properties";
+		Properties batchProperties = new Properties();
+		// Defaults
+		batchProperties.setProperty("Controllers", "mycontroller.MyAIController");
+		batchProperties.setProperty("Seeds", "1");
+		batchProperties.setProperty("MaxTicks", Long.toString(HeadlessSimulation.DEFAULT_MAX_TICKS));
+		batchProperties.setProperty("Output", "batch-results.csv");
+
+		try (FileReader inStream = new FileReader(manifest)) {
+			batchProperties.load(inStream);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+
+		List<String> maps = split(batchProperties.getProperty("Maps", ""));
+		List<String> controllers = split(batchProperties.getProperty("Controllers"));
+		List<Long> seeds = parseSeeds(batchProperties.getProperty("Seeds"));
+		long maxTicks = Long.parseLong(batchProperties.getProperty("MaxTicks").trim());
+
+		// Fail before any work is scheduled rather than on a worker thread
+		for (String controller : controllers) {
+			try {
+				Class.forName(controller);
+			} catch (ClassNotFoundException e) {
+				System.err.println("Unknown controller: " + controller);
+				System.exit(1);
+			}
+		}
+
+		BatchRunner runner = new BatchRunner(maps, controllers, seeds, maxTicks);
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		long start = System.nanoTime();
+		List<BatchRunner.Run> runs = runner.run(pool);
+		pool.shutdown();
+
+		String output = batchProperties.getProperty("Output").trim();
+		try (PrintWriter out = new PrintWriter(output)) {
+			BatchRunner.writeCsv(runs, out);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.out.printf("%d runs on %d workers in %.1f s, written to %s%n", runs.size(),
+				pool.getParallelism(), (System.nanoTime() - start) / 1e9, output);
+	}
+
+	private static List<String> split(String list) {
+		List<String> values = new ArrayList<>();
+		for (String value : list.split(",")) {
+			if (!value.trim().isEmpty()) values.add(value.trim());
+		}
+		return values;
+	}
+
+	/**
+	 * Seeds are a comma separated list of numbers or inclusive ranges, e.g. "1-5,42".
+	 */
+	private static List<Long> parseSeeds(String list) {
+		List<Long> seeds = new ArrayList<>();
+		for (String value : split(list)) {
+			int dash = value.indexOf('-', 1);
+			if (dash > 0) {
+				long from = Long.parseLong(value.substring(0, dash).trim());
+				long to = Long.parseLong(value.substring(dash + 1).trim());
+				for (long seed = from; seed <= to; seed++) seeds.add(seed);
+			} else {
+				seeds.add(Long.parseLong(value));
+			}
+		}
+		return seeds;
+	}
+}
@@ -0,0 +1,24 @@
+package swen30006.driving.headless;
+
+import java.util.Properties;
+
+import swen30006.driving.HeadlessSimulation;
+import swen30006.driving.Simulation;
+
+/**
+ * Runs a single simulation without a window. Map and Controller are read from
+ * Driving.Properties and may be overridden on the command line:
+ * <pre>HeadlessLauncher [map] [controller] [maxTicks]</pre>
+ */
+public class HeadlessLauncher {
+	public static void main (String[] arg) {
+		Properties drivingProperties = Simulation.loadDrivingProperties();
+		String mapName = arg.length > 0 ? arg[0] : drivingProperties.getProperty("Map");
+		String controllerName = arg.length > 1 ? arg[1] : drivingProperties.getProperty("Controller");
+		long maxTicks = arg.length > 2 ? Long.parseLong(arg[2]) : HeadlessSimulation.DEFAULT_MAX_TICKS;
+
+		HeadlessSimulation simulation = new HeadlessSimulation(mapName, controllerName);
+		HeadlessSimulation.Result result = simulation.run(maxTicks);
+		System.out.println(mapName + " / " + controllerName + ": " + result);
+	}
+}
@@ -18,4 +18,8 @@ public class HealthTrap extends TrapTile {
 	public boolean canTurn() {
 		return true;
 	}
+
+	public float getHealthChange(float delta) {
+		return HealthDelta * delta;
+	}
 }
@@ -21,6 +21,10 @@ public class LavaTrap extends TrapTile {
 		return true;
 	}
 
+	public float getHealthChange(float delta) {
+		return -HealthDelta * delta;
+	}
+
 	public void setKey(int key) {
 		this.key = key;
 		if (key > 0) System.out.println("Lava key = " + key);
@@ -22,4 +22,8 @@ public class MudTrap extends TrapTile {
 	public boolean canTurn() {
 		return true;
 	}
+
+	public boolean stopsCar() {
+		return true;
+	}
 }
@@ -16,4 +16,19 @@ public abstract class TrapTile extends MapTile{
 	
 	public abstract boolean canTurn();
 
+	/**
+	 * Cost hint: the change in health from being on this trap for one update of the
+	 * given time step, negative when it hurts.
+	 */
+	public float getHealthChange(float delta) {
+		return 0;
+	}
+
+	/**
+	 * Cost hint: whether this trap stops the car, so it cannot drive through it.
+	 */
+	public boolean stopsCar() {
+		return false;
+	}
+
 }
@@ -1,7 +1,5 @@
 package utilities;
 
-import java.util.Objects;
-
 public class Coordinate {
 	public int x;
 	public int y;
@@ -51,6 +49,7 @@ public class Coordinate {
 	}
 	
 	public int hashCode(){
-		return Objects.hash(x,y);
+		// Same value as Objects.hash(x,y) without boxing through varargs
+		return 31 * (31 + x) + y;
 	}
 }
@@ -0,0 +1,76 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ * A map from (x, y) coordinates to values, built on {@link CoordinateSet} so that keys are
+ * packed longs and never boxed. Values are stored alongside the dense key arrays.
+ */
+public class CoordinateMap<V> extends CoordinateSet {
+
+	private Object[] values;
+
+	public CoordinateMap() {
+		this(16);
+	}
+
+	public CoordinateMap(int expectedSize) {
+		super(expectedSize);
+		values = new Object[Math.max(8, expectedSize)];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(int x, int y) {
+		int index = indexOf(x, y);
+		return index < 0 ? null : (V) values[index];
+	}
+
+	public V get(Coordinate coordinate) {
+		return get(coordinate.x, coordinate.y);
+	}
+
+	/**
+	 * Associates value with (x, y).
+	 * @return the previous value, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int x, int y, V value) {
+		int index = insert(pack(x, y));
+		if (index < 0) index = -index - 1;
+		ensureCapacity(index + 1);
+		V previous = (V) values[index];
+		values[index] = value;
+		return previous;
+	}
+
+	public V put(Coordinate coordinate, V value) {
+		return put(coordinate.x, coordinate.y, value);
+	}
+
+	/**
+	 * The value stored at a dense index, for iteration alongside {@link #x(int)}/{@link #y(int)}.
+	 */
+	@SuppressWarnings("unchecked")
+	public V value(int index) {
+		return (V) values[index];
+	}
+
+	@Override
+	protected void moved(int from, int to) {
+		values[to] = values[from];
+	}
+
+	@Override
+	protected void removed(int index) {
+		values[index] = null;
+	}
+
+	@Override
+	protected void resized(int capacity) {
+		ensureCapacity(capacity);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (values.length < capacity) values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+	}
+}
@@ -0,0 +1,200 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ * A set of (x, y) coordinates packed into longs, with open addressing and no boxing.
+ *
+ * Entries are kept densely in insertion order, so they can be iterated by index with
+ * {@link #x(int)} and {@link #y(int)}; removing an entry moves the last entry into its place.
+ * The hash table only stores indices into the dense arrays and uses linear probing with
+ * backward-shift deletion, so there are no tombstones.
+ */
+public class CoordinateSet {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** Dense keys in insertion order */
+	private long[] keys;
+	/** Hash slots holding dense index + 1, or 0 when free */
+	private int[] slots;
+	private int mask;
+	private int size;
+
+	public CoordinateSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public CoordinateSet(int expectedSize) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity < expectedSize * 2) capacity <<= 1;
+		keys = new long[capacity / 2];
+		slots = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	public static long pack(int x, int y) {
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	public static int unpackX(long key) {
+		return (int) (key >> 32);
+	}
+
+	public static int unpackY(long key) {
+		return (int) key;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int x, int y) {
+		return indexOf(x, y) >= 0;
+	}
+
+	public boolean contains(Coordinate coordinate) {
+		return contains(coordinate.x, coordinate.y);
+	}
+
+	/**
+	 * Adds a coordinate.
+	 * @return true if it was not already present
+	 */
+	public boolean add(int x, int y) {
+		return insert(pack(x, y)) < 0;
+	}
+
+	public boolean add(Coordinate coordinate) {
+		return add(coordinate.x, coordinate.y);
+	}
+
+	/**
+	 * Removes a coordinate.
+	 * @return true if it was present
+	 */
+	public boolean remove(int x, int y) {
+		long key = pack(x, y);
+		int slot = findSlot(key);
+		if (slots[slot] == 0) return false;
+		int index = slots[slot] - 1;
+		deleteSlot(slot);
+
+		int last = size - 1;
+		if (index != last) {
+			// Move the last entry into the hole so the dense arrays stay packed
+			keys[index] = keys[last];
+			slots[findSlot(keys[index])] = index + 1;
+			moved(last, index);
+		}
+		size--;
+		removed(last);
+		return true;
+	}
+
+	public boolean remove(Coordinate coordinate) {
+		return remove(coordinate.x, coordinate.y);
+	}
+
+	public void clear() {
+		Arrays.fill(slots, 0);
+		for (int i = 0; i < size; i++) removed(i);
+		size = 0;
+	}
+
+	public int x(int index) {
+		return unpackX(keys[index]);
+	}
+
+	public int y(int index) {
+		return unpackY(keys[index]);
+	}
+
+	public long key(int index) {
+		return keys[index];
+	}
+
+	public Coordinate get(int index) {
+		return new Coordinate(x(index), y(index));
+	}
+
+	/**
+	 * Dense index of a coordinate, or -1 if absent.
+	 */
+	public int indexOf(int x, int y) {
+		return slots[findSlot(pack(x, y))] - 1;
+	}
+
+	/**
+	 * Inserts a key if absent.
+	 * @return the existing dense index, or -(new index) - 1 if it was inserted
+	 */
+	protected int insert(long key) {
+		int slot = findSlot(key);
+		if (slots[slot] != 0) return slots[slot] - 1;
+		if (size == keys.length) {
+			grow();
+			slot = findSlot(key);
+		}
+		keys[size] = key;
+		slots[slot] = size + 1;
+		size++;
+		return -size;
+	}
+
+	/** Called when the entry at dense index from has been moved to index to. */
+	protected void moved(int from, int to) {
+	}
+
+	/** Called when dense index has been vacated. */
+	protected void removed(int index) {
+	}
+
+	/** Called after the dense arrays have grown to capacity entries. */
+	protected void resized(int capacity) {
+	}
+
+	private int findSlot(long key) {
+		int slot = hash(key) & mask;
+		while (slots[slot] != 0 && keys[slots[slot] - 1] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void deleteSlot(int slot) {
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (slots[next] != 0) {
+			int home = hash(keys[slots[next] - 1]) & mask;
+			// Shift back entries whose home slot is not between the hole and their position
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				slots[hole] = slots[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		slots[hole] = 0;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		keys = new long[oldKeys.length * 2];
+		System.arraycopy(oldKeys, 0, keys, 0, size);
+		slots = new int[slots.length * 2];
+		mask = slots.length - 1;
+		for (int i = 0; i < size; i++) {
+			slots[findSlot(keys[i])] = i + 1;
+		}
+		resized(keys.length);
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -53,26 +53,34 @@ public class Car extends Sprite{
 	private float health;
 	private static final float MAX_HEALTH = 100;
 	
+	private int wallHits = 0;
+	
 	public static final int VIEW_SQUARE = 4;
 
+	/** The time step traps are applied with on every update */
+	public static final float UPDATE_DELTA = 0.25f;
+
 	public final int numKeys; // The number of keys we need to find
 	private Set<Integer> keys = new HashSet<>();  // Once the set is complete, we can exit
 
-	Car(Sprite sprite, int numKeys){
+	private final World world;
+
+	Car(World world, Sprite sprite, int numKeys){
 		super(sprite);
+		this.world = world;
 		this.numKeys = numKeys;
 		resetControls();
 		health = MAX_HEALTH;
-		if (World.getStart() == null) {
+		if (world.getStart() == null) {
 			try {
 				throw new NoStartLocationException();
 			} catch (NoStartLocationException e) {
 				e.printStackTrace();
 			}
 		} else {
-			// System.out.println("Start - Coord: "+World.getStart());
-			setX(World.getCarStart().x);
-			setY(World.getCarStart().y);
+			// System.out.println("Start - Coord: "+world.getStart());
+			setX(world.getCarStart().x);
+			setY(world.getCarStart().y);
 		}
 		// CAR_WIDTH = (int) sprite.getWidth();
 		// CAR_HEIGHT = (int) sprite.getHeight();
@@ -80,13 +88,13 @@ public class Car extends Sprite{
 	}
 
 	public void update(float delta0) {
-			float delta=0.25f;
+			float delta=UPDATE_DELTA;
 			if(Simulation.DEBUG_MODE){
 				printDebug();
 			}
 			// logger.info("accelerating: %5s; turning: %5s", accelerating, turning);
 			// Get the current tile
-			MapTile currentTile = World.lookUp(getX(), getY());
+			MapTile currentTile = world.lookUp(getX(), getY());
 			MapTile.Type currentType = currentTile.getType();
 			
 			/* Check if end of simulation condition met */
@@ -96,7 +104,7 @@ public class Car extends Sprite{
 			}
 			// Made it to finish with the last key? You win!!!
 			if(MapTile.Type.FINISH == currentType && hasAllKeys()) {
-				Simulation.endGame(true);
+				world.endGame(true);
 			}
 			// Can't move? You lose!
 			if((velocity < VELOCITY_EPSILON) && MapTile.Type.TRAP == currentType && !((TrapTile) currentTile).canAccelerate()){
@@ -119,7 +127,7 @@ public class Car extends Sprite{
 
 	private void lose(String message) {
 		System.out.println(message);
-		Simulation.endGame(false); // You lose!
+		world.endGame(false); // You lose!
 	}
 	
 	public void reduceHealth(float damage) {
@@ -161,7 +169,7 @@ public class Car extends Sprite{
 
 	private void applySteering(float delta){
 		// Can't steer if you are on certain traps!
-		MapTile currentTile = World.lookUp(getX(), getY());
+		MapTile currentTile = world.lookUp(getX(), getY());
 		if (turning.isPresent() &&
 				velocity != 0 &&
 				Math.abs(velocity) <= MAX_TURNING &&
@@ -179,7 +187,7 @@ public class Car extends Sprite{
 
 	private void applyAcceleration(float delta) {
 		// Can't accelerate if you are on certain traps!
-		MapTile currentTile = World.lookUp(getX(), getY());
+		MapTile currentTile = world.lookUp(getX(), getY());
 		if (accelerating.isPresent() && (!currentTile.isType(MapTile.Type.TRAP) || ((TrapTile) currentTile).canAccelerate())) {
 			if (accelerating.get() == Acceleration.FORWARD) {
 				if (velocity < 0) {
@@ -207,7 +215,7 @@ public class Car extends Sprite{
 
 	private void applyVelocity(float delta) {
 		if (velocity == 0) {
-			MapTile currentTile = World.lookUp(getX(), getY());
+			MapTile currentTile = world.lookUp(getX(), getY());
 			// Check if you are standing on a trap!
 			if (currentTile.isType(MapTile.Type.TRAP)) {
 					((TrapTile) currentTile).applyTo(this, delta);
@@ -226,8 +234,9 @@ public class Car extends Sprite{
 		for (int i = 0; i < nSteps; i++) {
 			nextx = getX()+dd.x;
 			nexty = getY()+dd.y;
-			nextTile = World.lookUp(nextx, nexty);
+			nextTile = world.lookUp(nextx, nexty);
 			if (nextTile.isType(MapTile.Type.WALL)) {
+				wallHits++;
 				reduceHealth(WALL_DAMAGE*(nSteps-i));
 				velocity /= -2; // Bounce back at half speed
 				break;
@@ -282,7 +291,7 @@ public class Car extends Sprite{
 
 	// Debug mode for the car
 	public void printDebug(){
-		MapTile tile = World.lookUp(getX(), getY());
+		MapTile tile = world.lookUp(getX(), getY());
 		MapTile.Type tileType = tile.getType();
 		String trapType = (tileType == MapTile.Type.TRAP ? "("+((TrapTile) tile).getTrap()+")":"");
 		logger.info("Speed: %5.1f; Angle: %6s; Position: %5s; Key: %6s; Health: %5.1f; Tile: %s%s",
@@ -297,13 +306,20 @@ public class Car extends Sprite{
 		HashMap<Coordinate,MapTile> subMap = new HashMap<Coordinate,MapTile>();
 		for(int x = currentX - VIEW_SQUARE; x <= currentX+VIEW_SQUARE; x++){
 			for(int y = currentY - VIEW_SQUARE; y <= currentY+VIEW_SQUARE; y++){
-				MapTile tile = World.lookUp(x,y);
+				MapTile tile = world.lookUp(x,y);
 				subMap.put(new Coordinate(x,y),tile);
 			}
 		}
 		return subMap;
 	}
 
+	/**
+	 * Fills a reusable view with what the car can see, without allocating.
+	 */
+	public void getView(TileView view){
+		view.update(world.getTiles(), Math.round(getX()), Math.round(getY()));
+	}
+
 	public String getPosition(){
 		return Math.round(this.getX())+","+Math.round(this.getY());
 	}
@@ -315,6 +331,10 @@ public class Car extends Sprite{
 	public Set<Integer> getKeys(){
 		return this.keys;
 	}
+	
+	public int getWallHits(){
+		return this.wallHits;
+	}
 
 	/*public void setKey(int key){
 		keys.add(key);
@@ -333,4 +353,8 @@ public class Car extends Sprite{
 		return this.currentOrientation;
 	}
 
+	public World getWorld(){
+		return this.world;
+	}
+
 }
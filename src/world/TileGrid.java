@@ -0,0 +1,103 @@
+package world;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import tiles.LavaTrap;
+import tiles.MapTile;
+import tiles.TrapTile;
+
+/**
+ * The tiles of a world stored as a flat row-major array of compact tile codes, in car
+ * coordinates (x to the east, y to the north). Every code refers to one shared flyweight
+ * MapTile in the palette, so a lookup is an index computation and never allocates.
+ * Cells outside the grid read as {@link #EMPTY}.
+ */
+public class TileGrid {
+
+	public static final int EMPTY = 0;
+	public static final int ROAD = 1;
+	public static final int WALL = 2;
+	public static final int START = 3;
+	public static final int FINISH = 4;
+
+	private static final int MAX_CODES = 256;
+
+	private final int width;
+	private final int height;
+	private final byte[] codes;
+
+	private final List<MapTile> palette = new ArrayList<>();
+	private final HashMap<String,Integer> trapCodes = new HashMap<>();
+
+	public TileGrid(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.codes = new byte[width * height];
+		palette.add(new MapTile(MapTile.Type.EMPTY));
+		palette.add(new MapTile(MapTile.Type.ROAD));
+		palette.add(new MapTile(MapTile.Type.WALL));
+		palette.add(new MapTile(MapTile.Type.START));
+		palette.add(new MapTile(MapTile.Type.FINISH));
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public boolean contains(int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	/**
+	 * The tile code at (x, y), or EMPTY outside the grid.
+	 */
+	public int code(int x, int y) {
+		return contains(x, y) ? codes[y * width + x] & 0xFF : EMPTY;
+	}
+
+	/**
+	 * The flyweight tile for a code.
+	 */
+	public MapTile tile(int code) {
+		return palette.get(code);
+	}
+
+	public MapTile get(int x, int y) {
+		return palette.get(code(x, y));
+	}
+
+	public void set(int x, int y, int code) {
+		codes[y * width + x] = (byte) code;
+	}
+
+	/**
+	 * Returns the code of the trap of the given type, creating its flyweight on first use.
+	 * Lava traps carrying different keys are different tiles.
+	 */
+	public int trapCode(String className, int key) throws ReflectiveOperationException {
+		String name = className + "#" + key;
+		Integer code = trapCodes.get(name);
+		if (code == null) {
+			if (palette.size() == MAX_CODES) throw new IllegalStateException("Too many distinct tiles");
+			TrapTile trap = (TrapTile) Class.forName(className).getDeclaredConstructor().newInstance();
+			if (trap instanceof LavaTrap) ((LavaTrap) trap).setKey(key);
+			code = palette.size();
+			palette.add(trap);
+			trapCodes.put(name, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Number of distinct codes in use; all codes are below this.
+	 */
+	public int paletteSize() {
+		return palette.size();
+	}
+}
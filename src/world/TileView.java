@@ -0,0 +1,110 @@
+package world;
+
+import tiles.MapTile;
+
+/**
+ * A reusable window of tile codes centred on the car, (2*radius+1) cells square.
+ * Refreshing it copies codes out of the world's {@link TileGrid}; nothing is allocated,
+ * so a controller can sense every tick without creating garbage.
+ *
+ * Cells are addressed either relative to the centre with {@link #tileAt(int, int)}, or by
+ * index 0..size()-1 for bulk iteration, in which case {@link #x(int)} and {@link #y(int)}
+ * give the absolute map coordinates of the cell.
+ */
+public class TileView {
+
+	/**
+	 * Callback for {@link TileView#forEach(Visitor)}.
+	 */
+	public interface Visitor {
+		void visit(int x, int y, MapTile tile);
+	}
+
+	private final int radius;
+	private final int side;
+	private final byte[] codes;
+	private TileGrid grid;
+	private int centreX;
+	private int centreY;
+
+	public TileView(int radius) {
+		this.radius = radius;
+		this.side = 2 * radius + 1;
+		this.codes = new byte[side * side];
+	}
+
+	/**
+	 * Copies the window around (centreX, centreY) out of the grid.
+	 */
+	void update(TileGrid grid, int centreX, int centreY) {
+		this.grid = grid;
+		this.centreX = centreX;
+		this.centreY = centreY;
+		int i = 0;
+		for (int y = centreY - radius; y <= centreY + radius; y++) {
+			for (int x = centreX - radius; x <= centreX + radius; x++) {
+				codes[i++] = (byte) grid.code(x, y);
+			}
+		}
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	public int getCentreX() {
+		return centreX;
+	}
+
+	public int getCentreY() {
+		return centreY;
+	}
+
+	/**
+	 * Number of cells in the window.
+	 */
+	public int size() {
+		return codes.length;
+	}
+
+	/**
+	 * The tile code dx cells east and dy cells north of the centre; |dx| and |dy| must be
+	 * at most the radius.
+	 */
+	public int codeAt(int dx, int dy) {
+		return codes[(dy + radius) * side + dx + radius] & 0xFF;
+	}
+
+	public MapTile tileAt(int dx, int dy) {
+		return grid.tile(codeAt(dx, dy));
+	}
+
+	public int code(int i) {
+		return codes[i] & 0xFF;
+	}
+
+	public MapTile tile(int i) {
+		return grid.tile(code(i));
+	}
+
+	/**
+	 * The flyweight tile for a code read from this view.
+	 */
+	public MapTile tileForCode(int code) {
+		return grid.tile(code);
+	}
+
+	public int x(int i) {
+		return centreX - radius + i % side;
+	}
+
+	public int y(int i) {
+		return centreY - radius + i / side;
+	}
+
+	public void forEach(Visitor visitor) {
+		for (int i = 0; i < codes.length; i++) {
+			visitor.visit(x(i), y(i), tile(i));
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package world;
+
+import tiles.MapTile;
+
+/**
+ * The cells of a {@link TileView} that entered the window or changed code since the
+ * previous view. The buffers are reused, so the contents are only valid until the next
+ * refresh.
+ */
+public class ViewDelta {
+
+	private final int[] xs;
+	private final int[] ys;
+	private final byte[] codes;
+	private int size;
+	private TileView view;
+
+	public ViewDelta(int capacity) {
+		xs = new int[capacity];
+		ys = new int[capacity];
+		codes = new byte[capacity];
+	}
+
+	/**
+	 * Collects the cells of current that were outside previous or hold a different code.
+	 * With no previous view every cell is reported.
+	 */
+	public void compute(TileView previous, TileView current) {
+		view = current;
+		size = 0;
+		int radius = current.getRadius();
+		int shiftX = 0, shiftY = 0;
+		boolean overlaps = false;
+		if (previous != null) {
+			shiftX = current.getCentreX() - previous.getCentreX();
+			shiftY = current.getCentreY() - previous.getCentreY();
+			overlaps = Math.abs(shiftX) <= 2 * radius && Math.abs(shiftY) <= 2 * radius;
+		}
+		for (int i = 0; i < current.size(); i++) {
+			int code = current.code(i);
+			if (overlaps) {
+				// Offset of this cell from the previous centre
+				int dx = current.x(i) - previous.getCentreX();
+				int dy = current.y(i) - previous.getCentreY();
+				if (Math.abs(dx) <= radius && Math.abs(dy) <= radius && previous.codeAt(dx, dy) == code) {
+					continue;
+				}
+			}
+			xs[size] = current.x(i);
+			ys[size] = current.y(i);
+			codes[size] = (byte) code;
+			size++;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int x(int i) {
+		return xs[i];
+	}
+
+	public int y(int i) {
+		return ys[i];
+	}
+
+	public int code(int i) {
+		return codes[i] & 0xFF;
+	}
+
+	public MapTile tile(int i) {
+		return view.tileForCode(code(i));
+	}
+}
@@ -1,5 +1,6 @@
 package world;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
@@ -16,7 +17,6 @@ import com.badlogic.gdx.maps.tiled.TiledMapTileLayer.Cell;
 import controller.CarController;
 import tiles.MapTile;
 import tiles.TrapTile;
-import tiles.LavaTrap;
 import utilities.Coordinate;
 /**
  * This class provides functionality for use within the simulation system. It is NOT intended to be
@@ -29,29 +29,45 @@ public class World {
 	private Car car;
 	
 	// Car's controller
-	private static CarController controller;
+	private CarController controller;
 	
-	private static TiledMap map;
+	private TiledMap map;
 	
 	public static int MAP_PIXEL_SIZE = 32;
-	public static int MAP_HEIGHT;
-	public static int MAP_WIDTH;
 	
-	private static String[] LAYER_NAME = {"Road","Utility","Trap","Wall"};
+	// The map property holding the path of the TMX file a map was loaded from
+	public static final String MAP_FILE_PROPERTY = "file";
+	private int mapHeight;
+	private int mapWidth;
 	
-	private static HashMap<Coordinate,MapTile> mapTiles = new HashMap<Coordinate,MapTile>();
-	private static HashMap<Coordinate,MapTile> providedMapTiles = new HashMap<Coordinate,MapTile>();
-	private static Coordinate start, carStart;
-	private static List<Coordinate> finish = new ArrayList<Coordinate>();
+	private static final String[] LAYER_NAME = {"Road","Utility","Trap","Wall"};
+	
+	// Everything below belongs to this world only, so several worlds can run side by side
+	private TileGrid tiles;
+	private HashMap<Coordinate,MapTile> providedMapTiles = new HashMap<Coordinate,MapTile>();
+	private Coordinate start, carStart;
+	private List<Coordinate> finish = new ArrayList<Coordinate>();
+	
+	private boolean gameEnded = false;
+	private boolean gameWon = false;
 	
 	public World(TiledMap map, String controllerName){
-		World.map = map;
+		this(map, controllerName, null);
+	}
+	
+	/**
+	 * Builds the world with the given car sprite. Headless runs pass an untextured
+	 * sprite so that no GL context is needed; null loads the default car texture.
+	 */
+	public World(TiledMap map, String controllerName, Sprite carSprite){
+		this.map = map;
 		TiledMapTileLayer roadLayer = (TiledMapTileLayer) getTiledMap().getLayers().get("Road");
-		MAP_HEIGHT = roadLayer.getHeight();
-		MAP_WIDTH = roadLayer.getWidth();
+		mapHeight = roadLayer.getHeight();
+		mapWidth = roadLayer.getWidth();
 		int numKeys = initializeMap(map); // numKeys is the number of keys the car needs to find
 		
-		car = new Car(new Sprite(new Texture("sprites/car2.png")), numKeys);
+		if (carSprite == null) carSprite = new Sprite(new Texture("sprites/car2.png"));
+		car = new Car(this, carSprite, numKeys);
 		// Set car size relative to the map scaling.
 		car.setSize(car.getWidth()*(1f/MAP_PIXEL_SIZE), car.getHeight()*(1f/MAP_PIXEL_SIZE));
 		car.setOriginCenter();
@@ -72,6 +88,8 @@ public class World {
 		// Need to check that the keys are a sequence
 		// ArrayList<Integer> keys = new ArrayList<Integer>();
 		TreeSet<Integer> keys = new TreeSet<Integer>();
+		// Tiles are stored in car coordinates, which are the layer coordinates
+		tiles = new TileGrid(mapWidth, mapHeight);
 		// Iterate through all layer names
 		for(String layerName : LAYER_NAME){
 			// Set the layer
@@ -83,7 +101,7 @@ public class World {
 				for(int y = 0; y < layer.getHeight(); y++){
 					Cell cell = layer.getCell(x, y);
 					if(cell != null){
-						MapTile newTile = null; // Only stays null if exception/exit
+						int newCode = TileGrid.EMPTY;
 						int reverseYAxis = layer.getHeight()-y;
 						Coordinate newCoord = new Coordinate(x, reverseYAxis);
 						// System.out.println(layerName+" - Coord: "+newCoord+" ID: "+cell.getTile().getId());
@@ -92,11 +110,10 @@ public class World {
 							// assert(cell.getTile().getProperties().get("type") != null);
 							String className = MapTile.tileNameSpace + (String) cell.getTile().getProperties().get("type");
 							try {
-								newTile = (TrapTile) Class.forName( className ).newInstance();
-								if (((TrapTile) newTile).getTrap() == "lava") {
-									int key = cell.getTile().getProperties().get("key", 0, Integer.class);
-									((LavaTrap) newTile).setKey(key);
-									if (key != 0) keys.add(key);
+								int key = cell.getTile().getProperties().get("key", 0, Integer.class);
+								newCode = tiles.trapCode(className, key);
+								if (((TrapTile) tiles.tile(newCode)).getTrap() == "lava" && key != 0) {
+									keys.add(key);
 								}
 							} catch (Exception e) {
 								e.printStackTrace();
@@ -105,10 +122,10 @@ public class World {
 							break;
 						case "Utility":
 							if(cell.getTile().getProperties().get("exit") != null){
-								newTile = new MapTile(MapTile.Type.FINISH);
+								newCode = TileGrid.FINISH;
 								finish.add(newCoord);
 							} else {
-								newTile = new MapTile(MapTile.Type.START);
+								newCode = TileGrid.START;
 								assert(null == start);
 								carStart = new Coordinate(x, y);
 								start = newCoord;
@@ -116,13 +133,13 @@ public class World {
 							}
 							break;
 						case "Road":
-							newTile = new MapTile(MapTile.Type.ROAD);
+							newCode = TileGrid.ROAD;
 							break;
 						case "Wall":
-							newTile = new MapTile(MapTile.Type.WALL);
+							newCode = TileGrid.WALL;
 							break;
 						}
-						mapTiles.put(newCoord, newTile);
+						tiles.set(x, y, newCode);
 					}
 				}
 			}
@@ -146,41 +163,72 @@ public class World {
 		car.draw(batch);
 	}
 	
-	protected static Coordinate getCarStart() {
+	public void endGame(boolean won){
+		gameEnded = true;
+		gameWon = won;
+	}
+	
+	public boolean isGameEnded() {
+		return gameEnded;
+	}
+	
+	public boolean isGameWon() {
+		return gameWon;
+	}
+	
+	protected Coordinate getCarStart() {
 		return carStart;
 	}
 	
-	protected static Coordinate getStart() {
+	protected Coordinate getStart() {
 		return start;
 	}
 	
-	protected static List<Coordinate> getFinish() {
+	protected List<Coordinate> getFinish() {
 		return finish;
 	}
 	
-	protected static TiledMap getTiledMap(){
+	protected TiledMap getTiledMap(){
 		return map;
 	}
 	
-	protected static MapTile lookUp(double futureX, double futureY){
-		int x = (int) Math.round(futureX);
-		int y =  MAP_HEIGHT - (int) Math.round(futureY); // Convert Y coordinate
-		Coordinate coord = new Coordinate(x,y);
-		return mapTiles.containsKey(coord) ? mapTiles.get(coord) : new MapTile(MapTile.Type.EMPTY);
+	/**
+	 * The TMX file the map was loaded from, or null for a generated map.
+	 */
+	public File getMapFile() {
+		String path = map.getProperties().get(MAP_FILE_PROPERTY, String.class);
+		return path == null ? null : new File(path);
+	}
+	
+	public int getMapHeight() {
+		return mapHeight;
+	}
+	
+	public int getMapWidth() {
+		return mapWidth;
+	}
+	
+	protected MapTile lookUp(double futureX, double futureY){
+		return tiles.get((int) Math.round(futureX), (int) Math.round(futureY));
+	}
+	
+	protected TileGrid getTiles(){
+		return tiles;
 	}
 	
 	public Car getCar(){
 		return this.car;
 	}
 	
-	public static HashMap<Coordinate,MapTile> getMap(){
+	public HashMap<Coordinate,MapTile> getMap(){
 		if(providedMapTiles.keySet().size() == 0){ // Lazy initialisation
-			for(Coordinate coord : mapTiles.keySet()){
-				int reverseYAxis = MAP_HEIGHT-coord.y;
-				Coordinate newCoord = new Coordinate(coord.x, reverseYAxis);
-				MapTile current = mapTiles.get(coord);
-				if (current.isType(MapTile.Type.TRAP)) current = new MapTile(MapTile.Type.ROAD);
-				providedMapTiles.put(newCoord, current);
+			for(int x = 0; x < mapWidth; x++){
+				for(int y = 0; y < mapHeight; y++){
+					MapTile current = tiles.get(x, y);
+					if (current.isType(MapTile.Type.EMPTY)) continue;
+					if (current.isType(MapTile.Type.TRAP)) current = tiles.tile(TileGrid.ROAD);
+					providedMapTiles.put(new Coordinate(x, y), current);
+				}
 			}
 		}
 		return providedMapTiles;	
@@ -189,13 +237,13 @@ public class World {
 	/** NOTE: to testing the DFS implementation
      *  NOT the Original file!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!
      * */
-    public static HashMap<Coordinate,MapTile> getMapACTUAL(){
+    public HashMap<Coordinate,MapTile> getMapACTUAL(){
         if(providedMapTiles.keySet().size() == 0){ // Lazy initialisation
-            for(Coordinate coord : mapTiles.keySet()){
-                int reverseYAxis = MAP_HEIGHT-coord.y;
-                Coordinate newCoord = new Coordinate(coord.x, reverseYAxis);
-                MapTile current = mapTiles.get(coord);
-                providedMapTiles.put(newCoord, current);
+            for(int x = 0; x < mapWidth; x++){
+                for(int y = 0; y < mapHeight; y++){
+                    MapTile current = tiles.get(x, y);
+                    if (!current.isType(MapTile.Type.EMPTY)) providedMapTiles.put(new Coordinate(x, y), current);
+                }
             }
         }
         return providedMapTiles;